@@ -0,0 +1,22 @@
+#!/bin/sh
+# Records post list responses into fixtures/ for offline benchmark runs
+# Gelbooru needs credentials: GELBOORU_AUTH="&api_key=...&user_id=..."
+set -e
+cd "$(dirname "$0")"
+mkdir -p fixtures
+UA="j2me-client/bench (https://github.com/shinovon)"
+
+fetch() {
+	echo "$1-$2"
+	curl -sfL -A "$UA" -o "fixtures/$1-$2.json" "$3"
+	sleep 1
+}
+
+# page sizes the client offers (5-50, default 20)
+for n in 10 20 50; do
+	fetch danbooru $n "https://danbooru.donmai.us/posts.json?limit=$n"
+	fetch gelbooru $n "https://gelbooru.com/index.php?page=dapi&s=post&q=index&json=1&limit=$n$GELBOORU_AUTH"
+	fetch safebooru $n "https://safebooru.org/index.php?page=dapi&s=post&q=index&json=1&limit=$n"
+	fetch yandere $n "https://yande.re/post.json?limit=$n"
+	fetch e621 $n "https://e621.net/posts.json?limit=$n"
+done
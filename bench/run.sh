@@ -0,0 +1,9 @@
+#!/bin/sh
+# Builds and runs benchmarks offline, extra arguments are passed to JMH (e.g. ParseBenchmark -p api=e621)
+# Run setup.sh once first so the local Maven repository has all plugins and dependencies
+# fixtures/ holds live responses saved by record.sh, missing ones are generated in the shape of each API with a notice on stderr
+set -e
+cd "$(dirname "$0")"
+mvn -B -o -q package || { echo "Offline build failed, run ./setup.sh once with network access" >&2; exit 1; }
+java -jar target/benchmarks.jar -prof gc -rf json -rff target/jmh-result.json "$@"
+java -cp target/benchmarks.jar cc.nnproject.json.bench.RetainedSize
@@ -0,0 +1,7 @@
+#!/bin/sh
+# One-time fetch of everything run.sh needs, so later runs work with -o (no network)
+# go-offline misses plugin providers resolved at execution (e.g. surefire-junit4), one online build pulls them
+set -e
+cd "$(dirname "$0")"
+mvn -B -q dependency:go-offline "$@"
+mvn -B -q package "$@"
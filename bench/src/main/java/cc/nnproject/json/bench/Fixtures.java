@@ -0,0 +1,303 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Post list responses for benchmarks.<br>
+ * Recorded responses are read from <code>fixtures/&lt;api&gt;-&lt;posts&gt;.json</code>
+ * (see record.sh), missing ones are generated with the same structure,
+ * so benchmarks run offline.
+ */
+public final class Fixtures {
+	
+	public static final String[] APIS = { "danbooru", "gelbooru", "safebooru", "yandere", "e621" };
+	
+	private static final String[] TAGS = {
+		"1girl", "solo", "long_hair", "looking_at_viewer", "smile", "blush", "short_hair", "open_mouth",
+		"touhou", "hakurei_reimu", "kirisame_marisa", "original", "highres", "absurdres", "ribbon",
+		"hair_ornament", "simple_background", "white_background", "skirt", "dress", "red_eyes",
+		"blue_eyes", "blonde_hair", "black_hair", "brown_hair", "thighhighs", "holding", "outdoors",
+		"sky", "cloud", "flower", "cherry_blossoms", "japanese_clothes", "kimono", "hat", "bow",
+		"commentary_request", "translated", "\u65e5\u672c\u8a9e", "\u043a\u043e\u0442", "emoji_\ud83d\ude00",
+		"quote\"d", "back\\slash", "animal_ears", "cat_ears", "tail", "wings", "sword", "weapon", "sitting",
+	};
+	
+	private Fixtures() {}
+	
+	public static byte[] load(String api, int posts) throws IOException {
+		File f = new File(System.getProperty("fixtures", "fixtures"), api + "-" + posts + ".json");
+		if (f.isFile())
+			return Files.readAllBytes(f.toPath());
+		System.err.println("No " + f + ", using generated response");
+		return generate(api, posts).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	// keys of list wrapper object, null for plain arrays
+	public static String listKey(String api) {
+		if ("gelbooru".equals(api)) return "post";
+		if ("e621".equals(api)) return "posts";
+		return null;
+	}
+	
+	public static String previewPath(String api) {
+		if ("danbooru".equals(api)) return "preview_file_url";
+		if ("e621".equals(api)) return "preview.url";
+		return "preview_url";
+	}
+	
+	public static String generate(String api, int posts) {
+		Random r = new Random(api.hashCode() * 31L + posts);
+		StringBuilder sb = new StringBuilder(posts * 1500);
+		String key = listKey(api);
+		if ("gelbooru".equals(api)) {
+			sb.append("{\"@attributes\":{\"limit\":").append(posts).append(",\"offset\":0,\"count\":").append(9000000).append("},");
+		} else if (key != null) {
+			sb.append('{');
+		}
+		if (key != null) sb.append('"').append(key).append("\":");
+		sb.append('[');
+		for (int i = 0; i < posts; i++) {
+			if (i > 0) sb.append(',');
+			int id = 7000000 - i * 7 - r.nextInt(5);
+			if ("danbooru".equals(api)) danbooru(sb, r, id);
+			else if ("gelbooru".equals(api)) gelbooru(sb, r, id);
+			else if ("safebooru".equals(api)) safebooru(sb, r, id);
+			else if ("yandere".equals(api)) yandere(sb, r, id);
+			else e621(sb, r, id);
+		}
+		sb.append(']');
+		if (key != null) sb.append('}');
+		return sb.toString();
+	}
+	
+	private static void danbooru(StringBuilder sb, Random r, int id) {
+		String md5 = md5(r);
+		int w = 600 + r.nextInt(3000), h = 600 + r.nextInt(3000);
+		sb.append('{');
+		num(sb, "id", id); str(sb, "created_at", date(r)); num(sb, "uploader_id", r.nextInt(900000));
+		num(sb, "score", r.nextInt(300)); str(sb, "source", "https://www.pixiv.net/artworks/" + r.nextInt(100000000));
+		str(sb, "md5", md5); nul(sb, "last_comment_bumped_at"); str(sb, "rating", rating(r));
+		num(sb, "image_width", w); num(sb, "image_height", h); str(sb, "tag_string", tags(r, 25));
+		num(sb, "fav_count", r.nextInt(500)); str(sb, "file_ext", "jpg"); nul(sb, "parent_id");
+		bool(sb, "has_children", r.nextBoolean()); num(sb, "approver_id", r.nextInt(600000));
+		num(sb, "tag_count_general", 20 + r.nextInt(20)); num(sb, "tag_count_artist", 1);
+		num(sb, "tag_count_character", r.nextInt(3)); num(sb, "tag_count_copyright", 1);
+		num(sb, "file_size", 100000 + r.nextInt(8000000)); num(sb, "up_score", r.nextInt(300));
+		num(sb, "down_score", -r.nextInt(5)); bool(sb, "is_pending", false); bool(sb, "is_flagged", false);
+		bool(sb, "is_deleted", false); num(sb, "tag_count", 25); str(sb, "updated_at", date(r));
+		bool(sb, "is_banned", false); num(sb, "pixiv_id", r.nextInt(100000000));
+		nul(sb, "last_commented_at"); bool(sb, "has_active_children", false); num(sb, "bit_flags", 0);
+		num(sb, "tag_count_meta", 2); bool(sb, "has_large", true); bool(sb, "has_visible_children", false);
+		str(sb, "tag_string_general", tags(r, 20)); str(sb, "tag_string_character", tags(r, 2));
+		str(sb, "tag_string_copyright", "touhou"); str(sb, "tag_string_artist", "artist_" + r.nextInt(10000));
+		str(sb, "tag_string_meta", "highres commentary_request");
+		String cdn = "https://cdn.donmai.us/";
+		String p = md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/" + md5;
+		str(sb, "file_url", cdn + "original/" + p + ".jpg");
+		str(sb, "large_file_url", cdn + "sample/" + md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/sample-" + md5 + ".jpg");
+		str(sb, "preview_file_url", cdn + "180x180/" + p + ".jpg");
+		sb.append("\"media_asset\":{");
+		num(sb, "id", id + 1000000); str(sb, "created_at", date(r)); str(sb, "updated_at", date(r));
+		str(sb, "md5", md5); str(sb, "file_ext", "jpg"); num(sb, "file_size", 100000 + r.nextInt(8000000));
+		num(sb, "image_width", w); num(sb, "image_height", h); nul(sb, "duration"); str(sb, "status", "active");
+		str(sb, "file_key", md5.substring(0, 9)); bool(sb, "is_public", true); str(sb, "pixel_hash", md5(r));
+		sb.append("\"variants\":[");
+		String[] types = { "180x180", "360x360", "720x720", "sample", "original" };
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0) sb.append(',');
+			sb.append('{');
+			str(sb, "type", types[i]); str(sb, "url", cdn + types[i] + "/" + p + ".jpg");
+			num(sb, "width", w >> (4 - i)); num(sb, "height", h >> (4 - i)); last(sb, "file_ext", "jpg");
+			sb.append('}');
+		}
+		sb.append("]}}");
+	}
+	
+	private static void gelbooru(StringBuilder sb, Random r, int id) {
+		String md5 = md5(r);
+		String dir = md5.substring(0, 2) + "/" + md5.substring(2, 4);
+		sb.append('{');
+		num(sb, "id", id); str(sb, "created_at", "Mon Jan 01 00:00:00 -0500 2024"); num(sb, "score", r.nextInt(100));
+		num(sb, "width", 600 + r.nextInt(3000)); num(sb, "height", 600 + r.nextInt(3000)); str(sb, "md5", md5);
+		str(sb, "directory", dir); str(sb, "image", md5 + ".jpg"); str(sb, "rating", "general");
+		str(sb, "source", "https://twitter.com/x/status/" + r.nextInt(1000000000)); num(sb, "change", 1700000000 + r.nextInt(10000000));
+		str(sb, "owner", "danbooru"); num(sb, "creator_id", 6498); num(sb, "parent_id", 0); num(sb, "sample", 1);
+		num(sb, "preview_height", 250); num(sb, "preview_width", 177); str(sb, "tags", tags(r, 30)); str(sb, "title", "");
+		str(sb, "has_notes", "false"); str(sb, "has_comments", "false");
+		str(sb, "file_url", "https://img3.gelbooru.com/images/" + dir + "/" + md5 + ".jpg");
+		str(sb, "preview_url", "https://img3.gelbooru.com/thumbnails/" + dir + "/thumbnail_" + md5 + ".jpg");
+		str(sb, "sample_url", "https://img3.gelbooru.com/samples/" + dir + "/sample_" + md5 + ".jpg");
+		num(sb, "sample_height", 1200); num(sb, "sample_width", 850); str(sb, "status", "active");
+		num(sb, "post_locked", 0); last(sb, "has_children", "false");
+		sb.append('}');
+	}
+	
+	private static void safebooru(StringBuilder sb, Random r, int id) {
+		String md5 = md5(r);
+		String dir = Integer.toString(4000 + r.nextInt(500));
+		sb.append('{');
+		str(sb, "preview_url", "https://safebooru.org/thumbnails/" + dir + "/thumbnail_" + md5 + ".jpg");
+		str(sb, "sample_url", "https://safebooru.org/samples/" + dir + "/sample_" + md5 + ".jpg");
+		str(sb, "file_url", "https://safebooru.org/images/" + dir + "/" + md5 + ".jpg");
+		str(sb, "directory", dir); str(sb, "hash", md5); num(sb, "width", 600 + r.nextInt(3000));
+		num(sb, "height", 600 + r.nextInt(3000)); num(sb, "id", id); str(sb, "image", md5 + ".jpg");
+		num(sb, "change", 1700000000 + r.nextInt(10000000)); str(sb, "owner", "danbooru"); num(sb, "parent_id", 0);
+		str(sb, "rating", "general"); bool(sb, "sample", true); num(sb, "sample_height", 1200);
+		num(sb, "sample_width", 850); nul(sb, "score"); str(sb, "tags", tags(r, 30)); str(sb, "source", "");
+		str(sb, "status", "active"); bool(sb, "has_notes", false); num(sb, "comment_count", 0);
+		sb.setLength(sb.length() - 1);
+		sb.append('}');
+	}
+	
+	private static void yandere(StringBuilder sb, Random r, int id) {
+		String md5 = md5(r);
+		int w = 1000 + r.nextInt(4000), h = 1000 + r.nextInt(4000);
+		String cdn = "https://files.yande.re/";
+		sb.append('{');
+		num(sb, "id", id / 6); str(sb, "tags", tags(r, 15)); num(sb, "created_at", 1700000000 + r.nextInt(10000000));
+		num(sb, "updated_at", 1700000000 + r.nextInt(10000000)); num(sb, "creator_id", r.nextInt(600000));
+		nul(sb, "approver_id"); str(sb, "author", "user" + r.nextInt(1000)); num(sb, "change", r.nextInt(10000000));
+		str(sb, "source", "https://i.pximg.net/img-original/img/" + r.nextInt(100000000) + "_p0.jpg");
+		num(sb, "score", r.nextInt(200)); str(sb, "md5", md5); num(sb, "file_size", 1000000 + r.nextInt(20000000));
+		str(sb, "file_ext", "jpg"); str(sb, "file_url", cdn + "image/" + md5 + "/yande.re%20" + id + ".jpg");
+		bool(sb, "is_shown_in_index", true); str(sb, "preview_url", "https://assets.yande.re/data/preview/" + md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/" + md5 + ".jpg");
+		num(sb, "preview_width", 150); num(sb, "preview_height", 106); num(sb, "actual_preview_width", 300);
+		num(sb, "actual_preview_height", 212); str(sb, "sample_url", cdn + "sample/" + md5 + "/yande.re%20" + id + "%20sample.jpg");
+		num(sb, "sample_width", 1500); num(sb, "sample_height", 1060); num(sb, "sample_file_size", 300000 + r.nextInt(500000));
+		str(sb, "jpeg_url", cdn + "image/" + md5 + "/yande.re%20" + id + ".jpg"); num(sb, "jpeg_width", w);
+		num(sb, "jpeg_height", h); num(sb, "jpeg_file_size", 0); str(sb, "rating", "s"); bool(sb, "is_rating_locked", false);
+		bool(sb, "has_children", false); nul(sb, "parent_id"); str(sb, "status", "active"); bool(sb, "is_pending", false);
+		num(sb, "width", w); num(sb, "height", h); bool(sb, "is_held", false); str(sb, "frames_pending_string", "");
+		sb.append("\"frames_pending\":[],"); str(sb, "frames_string", ""); sb.append("\"frames\":[],");
+		bool(sb, "is_note_locked", false); num(sb, "last_noted_at", 0); num(sb, "last_commented_at", 0);
+		sb.setLength(sb.length() - 1);
+		sb.append('}');
+	}
+	
+	private static void e621(StringBuilder sb, Random r, int id) {
+		String md5 = md5(r);
+		String p = md5.substring(0, 2) + "/" + md5.substring(2, 4) + "/" + md5;
+		int w = 600 + r.nextInt(3000), h = 600 + r.nextInt(3000);
+		sb.append('{');
+		num(sb, "id", id / 2); str(sb, "created_at", date(r)); str(sb, "updated_at", date(r));
+		sb.append("\"file\":{"); num(sb, "width", w); num(sb, "height", h); str(sb, "ext", "png");
+		num(sb, "size", 100000 + r.nextInt(9000000)); str(sb, "md5", md5);
+		last(sb, "url", "https://static1.e621.net/data/" + p + ".png"); sb.append("},");
+		sb.append("\"preview\":{"); num(sb, "width", 150); num(sb, "height", 150 * h / w);
+		last(sb, "url", "https://static1.e621.net/data/preview/" + p + ".jpg"); sb.append("},");
+		sb.append("\"sample\":{"); bool(sb, "has", true); num(sb, "height", 850 * h / w); num(sb, "width", 850);
+		str(sb, "url", "https://static1.e621.net/data/sample/" + p + ".jpg"); sb.append("\"alternates\":{}},");
+		sb.append("\"score\":{"); num(sb, "up", r.nextInt(500)); num(sb, "down", -r.nextInt(20));
+		sb.append("\"total\":").append(r.nextInt(480)).append("},");
+		sb.append("\"tags\":{");
+		String[] cats = { "general", "artist", "copyright", "character", "species", "invalid", "meta", "lore" };
+		int[] counts = { 30, 1, 1, 2, 2, 0, 3, 0 };
+		for (int i = 0; i < cats.length; i++) {
+			if (i > 0) sb.append(',');
+			sb.append('"').append(cats[i]).append("\":[");
+			for (int j = 0; j < counts[i]; j++) {
+				if (j > 0) sb.append(',');
+				sb.append('"').append(escape(TAGS[r.nextInt(TAGS.length)])).append('"');
+			}
+			sb.append(']');
+		}
+		sb.append("},\"locked_tags\":[],");
+		num(sb, "change_seq", 50000000 + r.nextInt(1000000));
+		sb.append("\"flags\":{"); bool(sb, "pending", false); bool(sb, "flagged", false); bool(sb, "note_locked", false);
+		bool(sb, "status_locked", false); bool(sb, "rating_locked", false); sb.append("\"deleted\":false},");
+		str(sb, "rating", "s"); num(sb, "fav_count", r.nextInt(1000));
+		sb.append("\"sources\":[\"https://twitter.com/x/status/").append(r.nextInt(1000000000)).append("\"],\"pools\":[],");
+		sb.append("\"relationships\":{"); nul(sb, "parent_id"); bool(sb, "has_children", false);
+		bool(sb, "has_active_children", false); sb.append("\"children\":[]},");
+		num(sb, "approver_id", r.nextInt(500000)); num(sb, "uploader_id", r.nextInt(1500000));
+		str(sb, "description", r.nextBoolean() ? "" : "Commission for a friend.\n\nThanks!");
+		num(sb, "comment_count", r.nextInt(10)); bool(sb, "is_favorited", false); bool(sb, "has_notes", false);
+		sb.append("\"duration\":null}");
+	}
+	
+	private static void num(StringBuilder sb, String k, long v) {
+		sb.append('"').append(k).append("\":").append(v).append(',');
+	}
+	
+	private static void str(StringBuilder sb, String k, String v) {
+		sb.append('"').append(k).append("\":\"").append(escape(v)).append("\",");
+	}
+	
+	private static void last(StringBuilder sb, String k, String v) {
+		sb.append('"').append(k).append("\":\"").append(escape(v)).append('"');
+	}
+	
+	private static void bool(StringBuilder sb, String k, boolean v) {
+		sb.append('"').append(k).append("\":").append(v).append(',');
+	}
+	
+	private static void nul(StringBuilder sb, String k) {
+		sb.append('"').append(k).append("\":null,");
+	}
+	
+	private static String escape(String s) {
+		StringBuilder sb = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\' || c == '\n') {
+				if (sb == null) sb = new StringBuilder(s.substring(0, i));
+				sb.append('\\').append(c == '\n' ? 'n' : c);
+			} else if (sb != null) {
+				sb.append(c);
+			}
+		}
+		return sb == null ? s : sb.toString();
+	}
+	
+	private static String tags(Random r, int n) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			if (i > 0) sb.append(' ');
+			sb.append(TAGS[r.nextInt(TAGS.length)]);
+		}
+		return sb.toString();
+	}
+	
+	private static String md5(Random r) {
+		StringBuilder sb = new StringBuilder(32);
+		for (int i = 0; i < 32; i++) {
+			sb.append(Character.forDigit(r.nextInt(16), 16));
+		}
+		return sb.toString();
+	}
+	
+	private static String date(Random r) {
+		return "2024-0" + (1 + r.nextInt(9)) + "-1" + r.nextInt(10) + "T1" + r.nextInt(10) + ":3" + r.nextInt(10)
+				+ ":0" + r.nextInt(10) + ".000-05:00";
+	}
+	
+	private static String rating(Random r) {
+		return "gsqe".substring(r.nextInt(4)).substring(0, 1);
+	}
+
+}
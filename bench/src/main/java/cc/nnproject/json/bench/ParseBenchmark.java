@@ -0,0 +1,168 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cc.nnproject.json.AbstractJSON;
+import cc.nnproject.json.JSON;
+import cc.nnproject.json.JSONArray;
+import cc.nnproject.json.JSONBinary;
+import cc.nnproject.json.JSONObject;
+import cc.nnproject.json.JSONQuery;
+import cc.nnproject.json.JSONStream;
+
+/**
+ * Full and selective parsing of post list responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	
+	@Param({ "danbooru", "gelbooru", "safebooru", "yandere", "e621" })
+	public String api;
+	
+	@Param({ "10", "20", "50" })
+	public int posts;
+	
+	private byte[] bytes;
+	private byte[] binary;
+	private String listKey;
+	private String[] keys;
+	private JSONQuery query;
+	
+	@Setup
+	public void setup() throws IOException {
+		bytes = Fixtures.load(api, posts);
+		binary = JSONBinary.encode(JSON.get(new String(bytes, StandardCharsets.UTF_8)));
+		listKey = Fixtures.listKey(api);
+		String preview = Fixtures.previewPath(api);
+		int dot = preview.indexOf('.');
+		keys = new String[] { "id", dot == -1 ? preview : preview.substring(0, dot) };
+		String prefix = listKey == null ? "" : listKey;
+		query = JSONQuery.compile(new String[] { prefix + "[*].id", prefix + "[*]." + preview });
+	}
+	
+	// Full parse
+	
+	@Benchmark
+	public AbstractJSON domLazy() {
+		String text = new String(bytes, StandardCharsets.UTF_8);
+		return listKey == null ? (AbstractJSON) JSON.getArray(text) : JSON.getObject(text);
+	}
+	
+	@Benchmark
+	public AbstractJSON domFull() {
+		AbstractJSON json = domLazy();
+		touch(json);
+		return json;
+	}
+	
+	@Benchmark
+	public AbstractJSON streamFull() throws IOException {
+		return JSONStream.getJSON(new ByteArrayInputStream(bytes));
+	}
+	
+	@Benchmark
+	public AbstractJSON binaryFull() {
+		return JSONBinary.decode(binary);
+	}
+	
+	// Selective parse of ids and preview urls
+	
+	@Benchmark
+	public void selectiveKeys(Blackhole bh) throws IOException {
+		JSONStream s = JSONStream.getStream(new ByteArrayInputStream(bytes));
+		if (listKey != null) {
+			s.expectNextTrim('{');
+			if (!s.jumpToKey(listKey))
+				throw new IOException("No " + listKey);
+		}
+		s.expectNextTrim('[');
+		char c;
+		while ((c = s.nextTrim()) != ']') {
+			if (c == ',') continue;
+			if (c != '{')
+				throw new IOException("Not object: " + c);
+			int k;
+			while ((k = s.nextKey(keys)) != -2) {
+				if (k == 0) {
+					bh.consume(s.nextLong());
+				} else if (k == 1) {
+					bh.consume(s.nextValue());
+				} else {
+					s.skipValue();
+				}
+			}
+		}
+	}
+	
+	@Benchmark
+	public JSONArray[] selectiveQuery() throws IOException {
+		return query.select(JSONStream.getStream(new ByteArrayInputStream(bytes)));
+	}
+	
+	@Benchmark
+	public int tokens() throws IOException {
+		JSONStream s = JSONStream.getStream(new ByteArrayInputStream(bytes));
+		int n = 0;
+		while (s.nextToken() != JSONStream.END_DOCUMENT) n++;
+		return n;
+	}
+	
+	// materializes lazily parsed members
+	static void touch(Object o) {
+		if (o instanceof JSONObject) {
+			JSONObject j = (JSONObject) o;
+			java.util.Enumeration e = j.keys();
+			while (e.hasMoreElements()) {
+				touch(j.get((String) e.nextElement()));
+			}
+		} else if (o instanceof JSONArray) {
+			JSONArray a = (JSONArray) o;
+			for (int i = 0; i < a.size(); i++) {
+				touch(a.get(i));
+			}
+		}
+	}
+
+}
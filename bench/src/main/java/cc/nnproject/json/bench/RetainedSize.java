@@ -0,0 +1,97 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json.bench;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import cc.nnproject.json.JSON;
+import cc.nnproject.json.JSONBinary;
+import cc.nnproject.json.JSONStream;
+
+/**
+ * Heap retained by parsed post lists, JMH gc profiler only reports allocation.<br>
+ * Usage: <code>java -cp target/benchmarks.jar cc.nnproject.json.bench.RetainedSize [copies]</code>
+ */
+public final class RetainedSize {
+	
+	private static final String[] METHODS = { "domLazy", "domFull", "streamFull", "binaryFull" };
+	
+	private static final int[] POSTS = { 10, 20, 50 };
+	
+	public static void main(String[] args) throws Exception {
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		System.out.println("api        posts  text KB  retained KB per page:");
+		System.out.print("                           ");
+		for (int m = 0; m < METHODS.length; m++) System.out.print(pad(METHODS[m], 12));
+		System.out.println();
+		for (int a = 0; a < Fixtures.APIS.length; a++) {
+			String api = Fixtures.APIS[a];
+			for (int p = 0; p < POSTS.length; p++) {
+				byte[] bytes = Fixtures.load(api, POSTS[p]);
+				byte[] binary = JSONBinary.encode(JSON.get(new String(bytes, StandardCharsets.UTF_8)));
+				System.out.print(pad(api, 11) + pad(Integer.toString(POSTS[p]), 7) + pad(Integer.toString(bytes.length / 1024), 9));
+				for (int m = 0; m < METHODS.length; m++) {
+					System.out.print(pad(Long.toString(measure(METHODS[m], bytes, binary, copies) / 1024), 12));
+				}
+				System.out.println();
+			}
+		}
+	}
+	
+	// difference between heap with all copies alive and after dropping them,
+	// measuring release is less sensitive to leftovers of previous runs than measuring growth
+	private static long measure(String method, byte[] bytes, byte[] binary, int copies) throws Exception {
+		Object[] keep = new Object[copies];
+		for (int i = 0; i < copies; i++) {
+			Object o;
+			if ("streamFull".equals(method)) {
+				o = JSONStream.getJSON(new ByteArrayInputStream(bytes));
+			} else if ("binaryFull".equals(method)) {
+				o = JSONBinary.decode(binary);
+			} else {
+				o = JSON.get(new String(bytes, StandardCharsets.UTF_8));
+				if ("domFull".equals(method)) ParseBenchmark.touch(o);
+			}
+			keep[i] = o;
+		}
+		long alive = used();
+		Arrays.fill(keep, null);
+		return (alive - used()) / copies;
+	}
+	
+	private static long used() {
+		MemoryMXBean mx = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) System.gc();
+		return mx.getHeapMemoryUsage().getUsed();
+	}
+	
+	private static String pad(String s, int n) {
+		StringBuilder sb = new StringBuilder(s);
+		while (sb.length() < n) sb.append(' ');
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json.bench;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cc.nnproject.json.AbstractJSON;
+import cc.nnproject.json.JSON;
+import cc.nnproject.json.JSONBinary;
+import cc.nnproject.json.JSONWriter;
+
+/**
+ * Serialisation of fully parsed post lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+	
+	@Param({ "danbooru", "gelbooru", "safebooru", "yandere", "e621" })
+	public String api;
+	
+	@Param({ "10", "20", "50" })
+	public int posts;
+	
+	private AbstractJSON json;
+	private JSONWriter writer;
+	
+	@Setup
+	public void setup() throws IOException {
+		json = JSON.get(new String(Fixtures.load(api, posts), StandardCharsets.UTF_8));
+		ParseBenchmark.touch(json);
+		writer = new JSONWriter(1024);
+	}
+	
+	@Benchmark
+	public byte[] build() throws UnsupportedEncodingException {
+		return json.build().getBytes("UTF-8");
+	}
+	
+	@Benchmark
+	public int writer() throws IOException {
+		JSONWriter w = writer;
+		w.reset();
+		w.value(json);
+		return w.size();
+	}
+	
+	@Benchmark
+	public byte[] binary() {
+		return JSONBinary.encode(json);
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+// damaged records must fail with JSONException, not with an index error
+public class JSONBinaryTest {
+	
+	private static byte[] sample() {
+		JSONObject j = JSON.getObject("{\"proxy\":\"http://nnp.nnchan.ru/hproxy.php?\",\"limit\":20,"
+				+ "\"apiMode\":0,\"viewMode\":1,\"keepBitmap\":true,\"rating\":1.5,\"big\":1183306438764164888,"
+				+ "\"name\":\"日本語 😀\",\"list\":[1,-2,null,false,{\"a\":\"b\"},[]]}");
+		return JSONBinary.encode(j);
+	}
+	
+	@Test
+	public void roundTrip() {
+		byte[] b = sample();
+		JSONObject j = (JSONObject) JSONBinary.decode(b);
+		assertEquals(20, j.getInt("limit"));
+		assertEquals(1183306438764164888L, j.getLong("big"));
+		assertEquals("日本語 😀", j.getString("name"));
+		assertEquals(6, j.getArray("list").size());
+	}
+	
+	@Test
+	public void truncated() {
+		byte[] b = sample();
+		for (int n = 3; n < b.length; n++) {
+			try {
+				JSONBinary.decode(b, 0, n);
+				fail("decoded " + n + " of " + b.length + " bytes");
+			} catch (JSONException e) {
+			}
+			try {
+				new JSONBinary(b, 0, n).skipValue();
+				fail("skipped " + n + " of " + b.length + " bytes");
+			} catch (JSONException e) {
+			}
+		}
+	}
+	
+	@Test
+	public void corrupted() {
+		byte[] b = sample();
+		Random r = new Random(36);
+		for (int i = 0; i < 20000; i++) {
+			byte[] c = (byte[]) b.clone();
+			int n = 1 + r.nextInt(3);
+			for (int k = 0; k < n; k++) {
+				c[3 + r.nextInt(c.length - 3)] = (byte) r.nextInt(256);
+			}
+			int len = r.nextBoolean() ? c.length : 3 + r.nextInt(c.length - 3);
+			try {
+				JSONBinary.decode(c, 0, len);
+			} catch (JSONException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+// integers of all 19 digits must come out exact from every parser
+public class LongNumberTest {
+	
+	private static final long[] VALUES = {
+		1183306438764164888L, -1183306438764164888L, Long.MAX_VALUE, -Long.MAX_VALUE, Long.MIN_VALUE,
+		999999999999999999L, 1000000000000000000L, 0, -1
+	};
+	
+	@Test
+	public void scanLong() {
+		for (int i = 0; i < VALUES.length; i++) {
+			if (VALUES[i] == Long.MIN_VALUE) continue;
+			char[] c = Long.toString(VALUES[i]).toCharArray();
+			assertEquals(VALUES[i], JSON.scanLong(c, 0, c.length));
+		}
+	}
+	
+	@Test
+	public void scanLongOverflow() {
+		String[] s = { "9223372036854775808", "-9223372036854775809", "12345678901234567890", "99999999999999999999" };
+		for (int i = 0; i < s.length; i++) {
+			char[] c = s[i].toCharArray();
+			assertEquals(s[i], JSON.NOT_LONG, JSON.scanLong(c, 0, c.length));
+		}
+	}
+	
+	@Test
+	public void dom() throws Exception {
+		for (int i = 0; i < VALUES.length; i++) {
+			JSONObject o = JSON.getObject("{\"id\":" + VALUES[i] + "}");
+			assertEquals(VALUES[i], o.getLong("id"));
+		}
+	}
+	
+	@Test
+	public void stream() throws Exception {
+		for (int i = 0; i < VALUES.length; i++) {
+			JSONStream s = stream("[" + VALUES[i] + "]");
+			s.expectNextTrim('[');
+			assertEquals(VALUES[i], s.nextLong());
+			
+			s = stream("{\"id\":" + VALUES[i] + "}");
+			int t;
+			while ((t = s.nextToken()) != JSONStream.NUMBER && t != JSONStream.END_DOCUMENT);
+			assertEquals(VALUES[i], s.getTokenLong());
+		}
+	}
+	
+	@Test
+	public void query() throws Exception {
+		for (int i = 0; i < VALUES.length; i++) {
+			JSONArray[] r = JSONQuery.compile("id").select(stream("{\"id\":" + VALUES[i] + "}"));
+			assertEquals(VALUES[i], r[0].getLong(0));
+		}
+	}
+	
+	private static JSONStream stream(String s) throws Exception {
+		return JSONStream.getStream(new ByteArrayInputStream(s.getBytes("UTF-8")));
+	}
+
+}
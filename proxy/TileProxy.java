@@ -0,0 +1,208 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local reference implementation of image proxy, for testing online resize without hproxy.php
+//
+// Run: java TileProxy.java [port], then set proxy URL to http://<host>:<port>/?
+//
+// Request is proxy URL followed by encoded image URL with optional parameters:
+//   ;tw=W;th=H                     fit image into W x H
+//   ;tw=W;th=H;cx=X;cy=Y;cw=w;ch=h  scale image to exactly W x H and return its region X, Y, w, h
+// Without parameters image is passed unchanged.
+// Originals and last scaled images are cached, so tiles of one zoom level are cropped from the same image.
+public class TileProxy {
+	
+	private static final int CACHE_SIZE = 8;
+	
+	private static final Map<String, byte[]> originals = lru();
+	private static final Map<String, BufferedImage> scaled = lru();
+	
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/", TileProxy::handle);
+		server.start();
+		System.out.println("Listening on " + port);
+	}
+	
+	private static <V> Map<String, V> lru() {
+		return new LinkedHashMap<String, V>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, V> e) {
+				return size() > CACHE_SIZE;
+			}
+		};
+	}
+	
+	private static void handle(HttpExchange ex) throws IOException {
+		try {
+			String q = ex.getRequestURI().getRawQuery();
+			if (q == null) {
+				send(ex, 400, "text/plain", "No URL".getBytes());
+				return;
+			}
+			String url = URLDecoder.decode(q, "UTF-8");
+			int p = url.indexOf(";tw=");
+			if (p == -1) {
+				byte[] b = original(url);
+				send(ex, 200, contentType(b), b);
+				return;
+			}
+			Map<String, Integer> params = params(url.substring(p + 1));
+			url = url.substring(0, p);
+			int tw = params.get("tw");
+			int th = params.get("th");
+			Integer cw = params.get("cw");
+			BufferedImage img;
+			if (cw == null) {
+				img = scaled(url, tw, th, true);
+			} else {
+				img = scaled(url, tw, th, false);
+				int cx = clamp(params.get("cx"), 0, img.getWidth() - 1);
+				int cy = clamp(params.get("cy"), 0, img.getHeight() - 1);
+				img = img.getSubimage(cx, cy,
+						clamp(cw, 1, img.getWidth() - cx),
+						clamp(params.get("ch"), 1, img.getHeight() - cy));
+			}
+			send(ex, 200, "image/jpeg", jpeg(img));
+		} catch (Exception e) {
+			e.printStackTrace();
+			send(ex, 500, "text/plain", String.valueOf(e).getBytes());
+		}
+	}
+	
+	private static Map<String, Integer> params(String s) {
+		Map<String, Integer> m = new LinkedHashMap<String, Integer>();
+		for (String p: s.split(";")) {
+			int i = p.indexOf('=');
+			if (i != -1) m.put(p.substring(0, i), Integer.valueOf(p.substring(i + 1)));
+		}
+		return m;
+	}
+	
+	private static int clamp(Integer v, int min, int max) {
+		int i = v == null ? min : v;
+		return i < min ? min : i > max ? max : i;
+	}
+	
+	private static byte[] original(String url) throws IOException {
+		synchronized (originals) {
+			byte[] b = originals.get(url);
+			if (b != null) return b;
+		}
+		HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+		c.setRequestProperty("User-Agent", "TileProxy");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = c.getInputStream()) {
+			byte[] buf = new byte[8192];
+			int n;
+			while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+		}
+		byte[] b = out.toByteArray();
+		synchronized (originals) {
+			originals.put(url, b);
+		}
+		return b;
+	}
+	
+	private static BufferedImage scaled(String url, int tw, int th, boolean fit) throws IOException {
+		String key = url + ';' + tw + 'x' + th + (fit ? 'f' : 'e');
+		synchronized (scaled) {
+			BufferedImage img = scaled.get(key);
+			if (img != null) return img;
+		}
+		BufferedImage src = ImageIO.read(new ByteArrayInputStream(original(url)));
+		if (src == null) throw new IOException("Unsupported image");
+		int w = tw, h = th;
+		if (fit) {
+			h = th;
+			w = h * src.getWidth() / src.getHeight();
+			if (w > tw) {
+				w = tw;
+				h = w * src.getHeight() / src.getWidth();
+			}
+		}
+		BufferedImage img = new BufferedImage(Math.max(1, w), Math.max(1, h), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g.drawImage(src, 0, 0, img.getWidth(), img.getHeight(), null);
+		g.dispose();
+		synchronized (scaled) {
+			scaled.put(key, img);
+		}
+		return img;
+	}
+	
+	private static byte[] jpeg(BufferedImage img) throws IOException {
+		ImageWriter w = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam p = w.getDefaultWriteParam();
+		p.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		p.setCompressionQuality(0.85f);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+			w.setOutput(ios);
+			w.write(null, new IIOImage(img, null, null), p);
+		} finally {
+			w.dispose();
+		}
+		return out.toByteArray();
+	}
+	
+	private static String contentType(byte[] b) {
+		if (b.length > 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8) return "image/jpeg";
+		if (b.length > 4 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') return "image/png";
+		if (b.length > 3 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F') return "image/gif";
+		return "application/octet-stream";
+	}
+	
+	private static void send(HttpExchange ex, int code, String type, byte[] b) throws IOException {
+		ex.getResponseHeaders().set("Content-Type", type);
+		ex.sendResponseHeaders(code, b.length);
+		try (OutputStream out = ex.getResponseBody()) {
+			out.write(b);
+		}
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.io.IOException;
+import java.util.Vector;
+
+import cc.nnproject.json.JSON;
+import cc.nnproject.json.JSONException;
+import cc.nnproject.json.JSONStream;
+
+// Per-API request building and response decoding
+public abstract class BooruBackend {
+	
+	// supports id based paging (page=b<id>), doesn't degrade on deep pages
+	static final int CAP_CURSOR = 1;
+	// supports projection of returned fields (only=)
+	static final int CAP_FIELDS = 2;
+	// has a dedicated endpoint for a single post
+	static final int CAP_POST_BY_ID = 4;
+	
+	final String url;
+	final int caps;
+	final int maxLimit;
+	// keys of post object that are passed to read(), others are skipped
+	final String[] keys;
+	
+	BooruBackend(String url, int caps, int maxLimit, String[] keys) {
+		this.url = url;
+		this.caps = caps;
+		this.maxLimit = maxLimit;
+		this.keys = keys;
+	}
+	
+	static BooruBackend get(int api) {
+		switch (api) {
+		case bIApp.API_GELBOORU:
+			return new GelbooruBackend("https://gelbooru.com/");
+		case bIApp.API_SAFEBOORU:
+			return new SafebooruBackend();
+		case bIApp.API_YANDERE:
+			return new YandereBackend();
+		case bIApp.API_E621:
+			return new E621Backend();
+		default:
+			return new DanbooruBackend();
+		}
+	}
+	
+	final boolean has(int cap) {
+		return (caps & cap) != 0;
+	}
+	
+	/**
+	 * Appends path and query of posts list request.
+	 * 
+	 * @param sb Buffer to append to
+	 * @param tags Search query, may be null
+	 * @param page Page number, starting from 1
+	 * @param cursor Id to continue from, only passed if {@link #CAP_CURSOR} is supported
+	 * @param limit Posts per page
+	 * @param fields Fields to request, only passed if {@link #CAP_FIELDS} is supported
+	 */
+	abstract void appendPostsUrl(StringBuffer sb, String tags, int page, String cursor, int limit, String fields);
+	
+	/**
+	 * Appends path and query of single post request.
+	 */
+	abstract void appendPostUrl(StringBuffer sb, String id, String fields);
+	
+	// fields enough to show posts list
+	String listFields() {
+		return null;
+	}
+	
+	// fields enough to show post page and view it
+	String postFields() {
+		return null;
+	}
+	
+	// key of posts array if response is wrapped in object
+	String listKey() {
+		return "posts";
+	}
+	
+	// key of post if single post response is wrapped in object
+	String postKey() {
+		return "post";
+	}
+	
+	/**
+	 * Reads value of known key into post.
+	 * 
+	 * @param key Index in {@link #keys}
+	 */
+	abstract void read(Post p, int key, JSONStream s) throws IOException;
+	
+	// called after whole post object is read
+	void finish(Post p) {}
+	
+	String getFile(Post p, boolean full) {
+		if (p.sample != null && !full)
+			return p.sample;
+		return p.file;
+	}
+	
+	// response decoding
+	
+	final Vector readPosts(JSONStream s) throws IOException {
+		Vector v = new Vector();
+		if (s.isObject()) {
+			s.expectNextTrim('{');
+			if (!s.jumpToKey(listKey()))
+				return v;
+		}
+		s.expectNextTrim('[');
+		char c = s.nextTrim();
+		if (c == ']')
+			return v;
+		while (true) {
+			if (c != '{')
+				throw new JSONException("readPosts: not object");
+			v.addElement(readPost(s));
+			c = s.nextTrim();
+			if (c == ']')
+				break;
+			if (c != ',')
+				throw new JSONException("readPosts: malformed array");
+			c = s.nextTrim();
+		}
+		return v;
+	}
+	
+	final Post readSinglePost(JSONStream s) throws IOException {
+		String k;
+		if (s.isObject() && (k = postKey()) != null) {
+			s.expectNextTrim('{');
+			if (!s.jumpToKey(k))
+				throw new IOException("No post");
+		}
+		char c = s.nextTrim();
+		// gelbooru and moebooru give array with one post
+		if (c == '[')
+			c = s.nextTrim();
+		if (c != '{')
+			throw new IOException("No post");
+		return readPost(s);
+	}
+	
+	// reads post object, opening bracket must be already read
+	private Post readPost(JSONStream s) throws IOException {
+		Post p = new Post();
+		String[] keys = this.keys;
+		int k;
+		while ((k = s.nextKey(keys)) != -2) {
+			if (k == -1) {
+				s.skipValue();
+				continue;
+			}
+			read(p, k, s);
+		}
+		finish(p);
+		return p;
+	}
+	
+	// value readers
+	
+	static String string(JSONStream s) throws IOException {
+		Object o = s.nextValue();
+		if (o == JSON.json_null) return null;
+		String r = o.toString();
+		return r.length() == 0 ? null : r;
+	}
+	
+	static int number(JSONStream s) throws IOException {
+		try {
+			return s.nextInt();
+		} catch (JSONException e) {
+			return 0;
+		}
+	}
+	
+	// reads array of strings into space separated string
+	static String join(JSONStream s) throws IOException {
+		s.expectNextTrim('[');
+		StringBuffer sb = new StringBuffer();
+		char c;
+		while ((c = s.nextTrim()) != ']') {
+			if (c == ',') continue;
+			if (c == 0)
+				throw new IOException("join: Unexpected end");
+			s.back();
+			if (sb.length() > 0) sb.append(' ');
+			sb.append(s.nextString());
+		}
+		return sb.toString();
+	}
+
+}
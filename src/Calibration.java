@@ -0,0 +1,141 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.util.Hashtable;
+
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+import javax.microedition.m3g.Appearance;
+import javax.microedition.m3g.Background;
+import javax.microedition.m3g.Camera;
+import javax.microedition.m3g.Graphics3D;
+import javax.microedition.m3g.Image2D;
+import javax.microedition.m3g.Texture2D;
+import javax.microedition.m3g.Transform;
+import javax.microedition.m3g.TriangleStripArray;
+import javax.microedition.m3g.VertexArray;
+import javax.microedition.m3g.VertexBuffer;
+
+// One time measurement of software scaling and M3G texture upload and render speed,
+// picks viewer, texture tile size and scaling quality for this device
+final class Calibration {
+	
+	// results
+	static boolean hwa;
+	static int tileSize = 512;
+	static boolean smooth = true;
+	
+	// limits in milliseconds
+	// HWA frame while dragging zoom slider
+	private static final int MAX_FRAME = 50;
+	// uploading one tile, bigger tiles stall panning
+	private static final int MAX_UPLOAD = 200;
+	// area averaging of a 512x512 test image, bilinear is used above that
+	private static final int MAX_SMOOTH = 150;
+	
+	static void run() {
+		// software
+		int[] rgb = new int[256 * 256];
+		// noise, so nothing can be skipped
+		for (int i = 0; i < rgb.length; i++) {
+			rgb[i] = 0xFF000000 | i * 0x9E3779B9;
+		}
+		Image src = Image.createRGBImage(rgb, 256, 256, false);
+		rgb = null;
+		Image big = bIApp.resize(src, 512, 512);
+		long t = System.currentTimeMillis();
+		bIApp.resize(big, 128, 128);
+		long box = System.currentTimeMillis() - t;
+		smooth = box <= MAX_SMOOTH;
+		
+		// hardware
+		hwa = false;
+		try {
+			Hashtable p = Graphics3D.getProperties();
+			Object o = p.get("maxTextureDimension");
+			int maxTexture = o instanceof Integer ? ((Integer) o).intValue() : 256;
+			int size = 512;
+			while (size > maxTexture && size > 64) size >>= 1;
+			
+			Graphics3D g3 = Graphics3D.getInstance();
+			// typical screen
+			Graphics g = Image.createImage(240, 320).getGraphics();
+			Background bg = new Background();
+			Camera cam = new Camera();
+			Transform ct = new Transform();
+			Object[] mesh;
+			while (true) {
+				Image tile = Image.createImage(size, size);
+				tile.getGraphics().drawImage(big, 0, 0, 0);
+				cam.setParallel(size, 0.75f, 0.1f, 900f);
+				ct.setIdentity();
+				ct.postTranslate(size / 2, size / 2, 100);
+				// texture usually goes to GPU on first frame
+				t = System.currentTimeMillis();
+				mesh = mesh(tile, size);
+				render(g3, g, bg, cam, ct, mesh);
+				long upload = System.currentTimeMillis() - t;
+				// smaller tiles are uploaded in shorter steps
+				if (upload <= MAX_UPLOAD || size <= 256) break;
+				size >>= 1;
+			}
+			tileSize = size;
+			
+			t = System.currentTimeMillis();
+			for (int i = 0; i < 4; i++) {
+				render(g3, g, bg, cam, ct, mesh);
+			}
+			long frame = (System.currentTimeMillis() - t) / 4;
+			hwa = frame <= MAX_FRAME;
+		} catch (Throwable e) {
+			// no M3G or it failed
+		}
+	}
+	
+	private static void render(Graphics3D g3, Graphics g, Background bg, Camera cam, Transform ct, Object[] mesh) {
+		g3.bindTarget(g, false, 0);
+		try {
+			g3.clear(bg);
+			g3.setCamera(cam, ct);
+			g3.render((VertexBuffer) mesh[0], (TriangleStripArray) mesh[1], (Appearance) mesh[2], null);
+		} finally {
+			g3.releaseTarget();
+		}
+	}
+	
+	private static Object[] mesh(Image img, int size) {
+		short s = (short) size;
+		VertexArray pos = new VertexArray(4, 3, 2);
+		pos.set(0, 4, new short[] { s, 0, 0, 0, 0, 0, s, s, 0, 0, s, 0 });
+		VertexArray uv = new VertexArray(4, 2, 2);
+		uv.set(0, 4, new short[] { 1, 0, 0, 0, 1, 1, 0, 1 });
+		VertexBuffer vb = new VertexBuffer();
+		vb.setPositions(pos, 1.0f, null);
+		vb.setTexCoords(0, uv, 1.0f, null);
+		Texture2D tex = new Texture2D(new Image2D(Image2D.RGB, img));
+		tex.setFiltering(Texture2D.FILTER_LINEAR, Texture2D.FILTER_LINEAR);
+		tex.setBlending(Texture2D.FUNC_REPLACE);
+		Appearance ap = new Appearance();
+		ap.setTexture(0, tex);
+		return new Object[] { vb, new TriangleStripArray(0, new int[] { 4 }), ap };
+	}
+
+}
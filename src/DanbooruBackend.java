@@ -0,0 +1,125 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.io.IOException;
+
+import cc.nnproject.json.JSONStream;
+
+public class DanbooruBackend extends BooruBackend {
+	
+	private static final String[] KEYS = {
+			"id", "preview_file_url", "large_file_url", "file_url",
+			"image_width", "image_height", "file_size", "md5",
+			"tag_string_artist", "tag_string_copyright", "tag_string_character",
+			"tag_string_general", "tag_string_meta"
+	};
+
+	DanbooruBackend() {
+		super("https://danbooru.donmai.us/", CAP_CURSOR | CAP_FIELDS | CAP_POST_BY_ID, 200, KEYS);
+	}
+
+	void appendPostsUrl(StringBuffer sb, String tags, int page, String cursor, int limit, String fields) {
+		sb.append("posts.json?limit=").append(limit);
+		if (cursor != null) {
+			sb.append("&page=b").append(cursor);
+		} else if (page > 1) {
+			sb.append("&page=").append(page);
+		}
+		if (fields != null) {
+			sb.append("&only=").append(fields);
+		}
+		if (tags != null) {
+			sb.append("&tags=").append(bIApp.url(tags));
+		}
+	}
+
+	void appendPostUrl(StringBuffer sb, String id, String fields) {
+		sb.append("posts/").append(id).append(".json");
+		if (fields != null) {
+			sb.append("?only=").append(fields);
+		}
+	}
+	
+	// enough to view post, only tags are requested when it is opened
+	String listFields() {
+		return "id,preview_file_url,large_file_url,file_url,image_width,image_height,file_size,md5";
+	}
+	
+	String postFields() {
+		return "id,preview_file_url,large_file_url,file_url,image_width,image_height,file_size,md5,"
+				+ "tag_string_artist,tag_string_copyright,tag_string_character,tag_string_general,tag_string_meta";
+	}
+	
+	String postKey() {
+		return null;
+	}
+
+	void read(Post p, int key, JSONStream s) throws IOException {
+		switch (key) {
+		case 0:
+			p.id = string(s);
+			break;
+		case 1:
+			// media_asset.variants has more sizes
+			p.preview = string(s);
+			break;
+		case 2:
+			p.sample = string(s);
+			break;
+		case 3:
+			p.file = string(s);
+			break;
+		case 4:
+			p.width = number(s);
+			break;
+		case 5:
+			p.height = number(s);
+			break;
+		case 6:
+			p.size = number(s);
+			break;
+		case 7:
+			p.md5 = string(s);
+			break;
+		case 8:
+			p.setTags(Post.TAGS_ARTIST, string(s));
+			break;
+		case 9:
+			p.setTags(Post.TAGS_COPYRIGHT, string(s));
+			break;
+		case 10:
+			p.setTags(Post.TAGS_CHARACTER, string(s));
+			break;
+		case 11:
+			p.setTags(Post.TAGS_GENERAL, string(s));
+			break;
+		case 12:
+			p.setTags(Post.TAGS_META, string(s));
+			break;
+		}
+	}
+	
+	// large file is preferred even for downloading
+	String getFile(Post p, boolean full) {
+		return p.sample != null ? p.sample : p.file;
+	}
+
+}
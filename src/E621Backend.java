@@ -0,0 +1,120 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.io.IOException;
+
+import cc.nnproject.json.JSONStream;
+
+public class E621Backend extends BooruBackend {
+	
+	private static final String[] KEYS = {
+			"id", "file", "preview", "sample", "tags"
+	};
+	
+	private static final String[] FILE_KEYS = {
+			"url", "width", "height", "size", "md5"
+	};
+	
+	private static final String[] URL_KEYS = {
+			"url"
+	};
+	
+	// same order as in Post
+	private static final String[] TAG_KEYS = {
+			null, "artist", "copyright", "character", "species", "general", "lore", "meta"
+	};
+
+	E621Backend() {
+		super("https://e621.net/", CAP_CURSOR | CAP_POST_BY_ID, 320, KEYS);
+	}
+
+	void appendPostsUrl(StringBuffer sb, String tags, int page, String cursor, int limit, String fields) {
+		sb.append("posts.json?limit=").append(limit);
+		if (cursor != null) {
+			sb.append("&page=b").append(cursor);
+		} else if (page > 1) {
+			sb.append("&page=").append(page);
+		}
+		if (tags != null) {
+			sb.append("&tags=").append(bIApp.url(tags));
+		}
+	}
+
+	void appendPostUrl(StringBuffer sb, String id, String fields) {
+		sb.append("posts/").append(id).append(".json");
+	}
+
+	void read(Post p, int key, JSONStream s) throws IOException {
+		int k;
+		switch (key) {
+		case 0:
+			p.id = string(s);
+			return;
+		case 1:
+			s.expectNextTrim('{');
+			while ((k = s.nextKey(FILE_KEYS)) != -2) {
+				switch (k) {
+				case 0:
+					p.file = string(s);
+					break;
+				case 1:
+					p.width = number(s);
+					break;
+				case 2:
+					p.height = number(s);
+					break;
+				case 3:
+					p.size = number(s);
+					break;
+				case 4:
+					p.md5 = string(s);
+					break;
+				default:
+					s.skipValue();
+				}
+			}
+			return;
+		case 2:
+		case 3:
+			s.expectNextTrim('{');
+			while ((k = s.nextKey(URL_KEYS)) != -2) {
+				if (k == 0) {
+					if (key == 2) p.preview = string(s);
+					else p.sample = string(s);
+				} else {
+					s.skipValue();
+				}
+			}
+			return;
+		case 4:
+			s.expectNextTrim('{');
+			while ((k = s.nextKey(TAG_KEYS)) != -2) {
+				if (k == -1) {
+					s.skipValue();
+					continue;
+				}
+				p.setTags(k, join(s));
+			}
+			return;
+		}
+	}
+
+}
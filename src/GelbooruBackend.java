@@ -0,0 +1,90 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.io.IOException;
+
+import cc.nnproject.json.JSONStream;
+
+// Gelbooru 0.2 dapi
+public class GelbooruBackend extends BooruBackend {
+	
+	static final String[] KEYS = {
+			"id", "preview_url", "sample_url", "file_url",
+			"width", "height", "md5", "tags",
+			"directory", "image", "hash"
+	};
+
+	GelbooruBackend(String url) {
+		super(url, CAP_POST_BY_ID, 1000, KEYS);
+	}
+
+	void appendPostsUrl(StringBuffer sb, String tags, int page, String cursor, int limit, String fields) {
+		sb.append("index.php?page=dapi&s=post&q=index&json=1&limit=").append(limit);
+		// pid starts from 0
+		if (page > 1) {
+			sb.append("&pid=").append(page - 1);
+		}
+		if (tags != null) {
+			sb.append("&tags=").append(bIApp.url(tags));
+		}
+	}
+
+	void appendPostUrl(StringBuffer sb, String id, String fields) {
+		sb.append("index.php?page=dapi&s=post&q=index&json=1&id=").append(id);
+	}
+	
+	String listKey() {
+		return "post";
+	}
+
+	void read(Post p, int key, JSONStream s) throws IOException {
+		switch (key) {
+		case 0:
+			p.id = string(s);
+			break;
+		case 1:
+			p.preview = string(s);
+			break;
+		case 2:
+			p.sample = string(s);
+			break;
+		case 3:
+			p.file = string(s);
+			break;
+		case 4:
+			p.width = number(s);
+			break;
+		case 5:
+			p.height = number(s);
+			break;
+		case 6:
+		case 10:
+			p.md5 = string(s);
+			break;
+		case 7:
+			p.setTags(Post.TAGS, string(s));
+			break;
+		default:
+			s.skipValue();
+		}
+	}
+
+}
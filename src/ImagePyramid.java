@@ -0,0 +1,171 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.util.Vector;
+
+import javax.microedition.lcdui.Image;
+
+// Data of one post image kept between zoom changes and screen rotations:
+// encoded original, whole images scaled to different sizes and tile sets of zoomed views
+// Least recently used entries are dropped when cache takes more than a third of heap,
+// images still shown by view stay referenced there
+final class ImagePyramid {
+	
+	final Post post;
+	// size of original, 0 if not known yet
+	int width;
+	int height;
+	// proxy returned whole image instead of a tile
+	boolean noCrop;
+	
+	private byte[] source;
+	
+	// Image or Object[] tile set, most recently used last
+	private final Vector values = new Vector();
+	// width << 16 | height of image, or key given to tile set
+	private final Vector keys = new Vector();
+	private final Vector tileSets = new Vector();
+	private int bytes;
+	
+	ImagePyramid(Post post) {
+		this.post = post;
+		if (post != null && post.width > 0 && post.height > 0) {
+			width = post.width;
+			height = post.height;
+		}
+	}
+	
+	byte[] getSource() {
+		return source;
+	}
+	
+	// Keeps encoded original if it fits in budget with other entries
+	void setSource(byte[] b) {
+		if (source != null) bytes -= source.length;
+		source = null;
+		if (b == null) return;
+		bytes += b.length;
+		source = b;
+		trim();
+	}
+	
+	// Returns image of exactly given size
+	Image get(int w, int h) {
+		int i = indexOf(w << 16 | h, false);
+		if (i == -1) return null;
+		touch(i);
+		return (Image) values.lastElement();
+	}
+	
+	// Returns smallest image not smaller than given size, to scale down from
+	Image larger(int w, int h) {
+		Image res = null;
+		for (int i = values.size() - 1; i >= 0; i--) {
+			if (tileSets.elementAt(i) != null) continue;
+			Image img = (Image) values.elementAt(i);
+			if (img.getWidth() >= w && img.getHeight() >= h
+					&& (res == null || img.getWidth() < res.getWidth())) {
+				res = img;
+			}
+		}
+		return res;
+	}
+	
+	void put(Image img) {
+		int k = img.getWidth() << 16 | img.getHeight();
+		remove(indexOf(k, false));
+		add(img, k, null, img.getWidth() * img.getHeight() * 4);
+	}
+	
+	// Returns tile set stored with given key and removes it, it is put back when view leaves it
+	Object[] takeTiles(int key) {
+		int i = indexOf(key, true);
+		if (i == -1) return null;
+		Object[] set = (Object[]) tileSets.elementAt(i);
+		remove(i);
+		return set;
+	}
+	
+	void putTiles(int key, Object[] set, Image[] tiles) {
+		int size = 0;
+		for (int i = 0; i < tiles.length; i++) {
+			if (tiles[i] != null) size += tiles[i].getWidth() * tiles[i].getHeight() * 4;
+		}
+		remove(indexOf(key, true));
+		add(tiles, key, set, size);
+	}
+	
+	void clear() {
+		values.removeAllElements();
+		keys.removeAllElements();
+		tileSets.removeAllElements();
+		source = null;
+		bytes = 0;
+	}
+	
+	private void add(Object value, int key, Object[] set, int size) {
+		values.addElement(value);
+		keys.addElement(new int[] { key, size });
+		tileSets.addElement(set);
+		bytes += size;
+		trim();
+	}
+	
+	private int indexOf(int key, boolean tiles) {
+		for (int i = keys.size() - 1; i >= 0; i--) {
+			if (((int[]) keys.elementAt(i))[0] == key && (tileSets.elementAt(i) != null) == tiles) return i;
+		}
+		return -1;
+	}
+	
+	private void touch(int i) {
+		Object v = values.elementAt(i);
+		Object k = keys.elementAt(i);
+		Object s = tileSets.elementAt(i);
+		values.removeElementAt(i);
+		keys.removeElementAt(i);
+		tileSets.removeElementAt(i);
+		values.addElement(v);
+		keys.addElement(k);
+		tileSets.addElement(s);
+	}
+	
+	private void remove(int i) {
+		if (i == -1) return;
+		bytes -= ((int[]) keys.elementAt(i))[1];
+		values.removeElementAt(i);
+		keys.removeElementAt(i);
+		tileSets.removeElementAt(i);
+	}
+	
+	// drops oldest entries, encoded original goes last as decoding it again is cheaper than downloading
+	private void trim() {
+		long budget = Runtime.getRuntime().totalMemory() / 3;
+		while (bytes > budget && values.size() > 1) {
+			remove(0);
+		}
+		if (bytes > budget && source != null) {
+			bytes -= source.length;
+			source = null;
+		}
+	}
+
+}
@@ -0,0 +1,267 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import javax.microedition.lcdui.Image;
+
+// Resamples an image row by row, source rows are read once with getRGB,
+// or taken from JPEG decoder as they are decoded
+// Bilinear filtering for upscaling and light downscaling,
+// area averaging when shrinking to a half or less, where bilinear skips pixels
+final class ImageScaler {
+	
+	// area averaging is skipped on devices where calibration found it too slow
+	static boolean smooth = true;
+	
+	final int width;
+	final int height;
+	// size of whole scaled image, differs from output when scaling a tile of it
+	private final int fullWidth;
+	private final int fullHeight;
+	// last destination row + 1
+	private final int endY;
+	
+	private final Image src;
+	private final JPEGDecoder jpeg;
+	private final int srcHeight;
+	private final boolean box;
+	// first source column and number of columns read
+	private int srcX;
+	private int srcSpan;
+	
+	// next destination row
+	private int y;
+	
+	// source row buffer
+	private int[] row;
+	
+	// bilinear: source column and weight of the next one for each destination column
+	private int[] xIndex;
+	private int[] xWeight;
+	// horizontally scaled source rows and their indices
+	private int[] upper;
+	private int[] lower;
+	private int upperY = -1;
+	private int lowerY = -1;
+	
+	// box: first source column of each destination column relative to srcX, last entry is end of last one
+	private int[] xStart;
+	// channel sums of current destination row
+	private int[] sumA;
+	private int[] sumR;
+	private int[] sumG;
+	private int[] sumB;
+	
+	ImageScaler(Image src, int width, int height) {
+		this(src, null, src.getWidth(), src.getHeight(), width, height, 0, 0, width, height);
+	}
+	
+	// Scales only given region of image scaled to full size, reading only needed source columns
+	ImageScaler(Image src, int fullWidth, int fullHeight, int x, int y, int width, int height) {
+		this(src, null, src.getWidth(), src.getHeight(), fullWidth, fullHeight, x, y, width, height);
+	}
+	
+	// decoder must be started at its final scale
+	ImageScaler(JPEGDecoder jpeg, int width, int height) {
+		this(null, jpeg, jpeg.scaledWidth, jpeg.scaledHeight, width, height, 0, 0, width, height);
+	}
+	
+	// Scales only given region of JPEG, blocks outside of read columns are not transformed
+	ImageScaler(JPEGDecoder jpeg, int fullWidth, int fullHeight, int x, int y, int width, int height) {
+		this(null, jpeg, jpeg.scaledWidth, jpeg.scaledHeight, fullWidth, fullHeight, x, y, width, height);
+	}
+	
+	private ImageScaler(Image src, JPEGDecoder jpeg, int w0, int h0, int fw, int fh, int dx, int dy, int width, int height) {
+		this.src = src;
+		this.jpeg = jpeg;
+		this.width = width;
+		this.height = height;
+		fullWidth = fw;
+		fullHeight = fh;
+		y = dy;
+		endY = dy + height;
+		srcHeight = h0;
+		if (box = smooth && fw * 2 <= w0 && fh * 2 <= h0 && w0 <= fw * 256) {
+			int[] xs = xStart = new int[width + 1];
+			int sx = srcX = (int) ((long) dx * w0 / fw);
+			for (int x = 0; x <= width; x++) {
+				xs[x] = (int) ((long) (dx + x) * w0 / fw) - sx;
+			}
+			srcSpan = xs[width];
+			sumA = new int[width];
+			sumR = new int[width];
+			sumG = new int[width];
+			sumB = new int[width];
+		} else {
+			int[] xi = xIndex = new int[width];
+			int[] xw = xWeight = new int[width];
+			int sx = srcX = (int) (((long) dx * w0) / fw);
+			int last = sx;
+			for (int x = 0; x < width; x++) {
+				int xa = (int) ((((long) (dx + x) * w0) << 8) / fw);
+				int i = xa >> 8;
+				if (i + 1 >= w0) {
+					xi[x] = w0 - 1 - sx;
+					last = w0 - 1;
+					continue;
+				}
+				xi[x] = i - sx;
+				xw[x] = xa & 0xFF;
+				last = i + 1;
+			}
+			srcSpan = last - sx + 1;
+			upper = new int[width];
+			lower = new int[width];
+		}
+		row = new int[srcSpan];
+		if (jpeg != null) jpeg.setColumns(srcX, srcX + srcSpan);
+	}
+	
+	// Writes next destination rows to dst starting at offset, with scanline equal to width
+	// Returns number of rows written, 0 when image is finished
+	int next(int[] dst, int offset, int rows) {
+		if (rows > endY - y) rows = endY - y;
+		if (box) {
+			for (int i = 0; i < rows; i++) {
+				boxRow(dst, offset);
+				offset += width;
+			}
+		} else {
+			for (int i = 0; i < rows; i++) {
+				bilinearRow(dst, offset);
+				offset += width;
+			}
+		}
+		return rows;
+	}
+	
+	private void bilinearRow(int[] dst, int offset) {
+		int w1 = width;
+		int ya = (int) ((((long) y++ * srcHeight) << 8) / fullHeight);
+		int y0 = ya >> 8;
+		int yd = ya & 0xFF;
+		if (y0 + 1 >= srcHeight) {
+			y0 = srcHeight - 1;
+			yd = 0;
+		}
+		
+		// rows only move down, so the lower row of previous step becomes the upper one
+		if (upperY != y0) {
+			if (lowerY == y0) {
+				int[] t = upper;
+				upper = lower;
+				lower = t;
+				upperY = y0;
+				lowerY = -1;
+			} else {
+				scaleRow(y0, upper);
+				upperY = y0;
+			}
+		}
+		
+		int[] a = upper;
+		if (yd == 0) {
+			System.arraycopy(a, 0, dst, offset, w1);
+			return;
+		}
+		if (lowerY != y0 + 1) {
+			scaleRow(y0 + 1, lower);
+			lowerY = y0 + 1;
+		}
+		int[] b = lower;
+		for (int x = 0; x < w1; x++) {
+			int c1 = a[x];
+			int c2 = b[x];
+			int rb = c1 & 0x00FF00FF;
+			int ag = c1 & 0xFF00FF00;
+			dst[offset++] = (ag + ((((c2 >>> 8) & 0x00FF00FF) - (ag >>> 8)) * yd)) & 0xFF00FF00
+					| (rb + ((((c2 & 0x00FF00FF) - rb) * yd) >> 8)) & 0x00FF00FF;
+		}
+	}
+	
+	// reads source row and interpolates it to destination width
+	private void scaleRow(int sy, int[] out) {
+		int[] r = row;
+		int[] xi = xIndex;
+		int[] xw = xWeight;
+		read(sy, r);
+		for (int x = 0, w1 = width; x < w1; x++) {
+			int i = xi[x];
+			int d = xw[x];
+			int c1 = r[i];
+			if (d == 0) {
+				out[x] = c1;
+				continue;
+			}
+			int c2 = r[i + 1];
+			int rb = c1 & 0x00FF00FF;
+			int ag = c1 & 0xFF00FF00;
+			out[x] = (ag + ((((c2 >>> 8) & 0x00FF00FF) - (ag >>> 8)) * d)) & 0xFF00FF00
+					| (rb + ((((c2 & 0x00FF00FF) - rb) * d) >> 8)) & 0x00FF00FF;
+		}
+	}
+	
+	private void read(int sy, int[] r) {
+		if (jpeg != null) {
+			jpeg.readRow(sy, r, srcX, srcSpan);
+		} else {
+			src.getRGB(r, 0, srcSpan, srcX, sy, srcSpan, 1);
+		}
+	}
+	
+	private void boxRow(int[] dst, int offset) {
+		int w1 = width;
+		int y0 = (int) ((long) y * srcHeight / fullHeight);
+		int y1 = (int) ((long) ++y * srcHeight / fullHeight);
+		int[] r = row;
+		int[] xs = xStart;
+		int[] sa = sumA, sr = sumR, sg = sumG, sb = sumB;
+		for (int x = 0; x < w1; x++) {
+			sa[x] = sr[x] = sg[x] = sb[x] = 0;
+		}
+		for (int sy = y0; sy < y1; sy++) {
+			read(sy, r);
+			int i = 0;
+			for (int x = 0; x < w1; x++) {
+				// two channels per int, a run of up to 256 pixels can't overflow 16 bits
+				int ag = 0, rb = 0;
+				for (int e = xs[x + 1]; i < e; i++) {
+					int c = r[i];
+					ag += (c >>> 8) & 0x00FF00FF;
+					rb += c & 0x00FF00FF;
+				}
+				sa[x] += ag >>> 16;
+				sg[x] += ag & 0xFFFF;
+				sr[x] += rb >>> 16;
+				sb[x] += rb & 0xFFFF;
+			}
+		}
+		int rows = y1 - y0;
+		for (int x = 0; x < w1; x++) {
+			// 23 bit reciprocal keeps 255 * n * inv in int range
+			int inv = (1 << 23) / ((xs[x + 1] - xs[x]) * rows);
+			dst[offset++] = ((sa[x] * inv + (1 << 22)) >>> 23) << 24
+					| ((sr[x] * inv + (1 << 22)) >>> 23) << 16
+					| ((sg[x] * inv + (1 << 22)) >>> 23) << 8
+					| ((sb[x] * inv + (1 << 22)) >>> 23);
+		}
+	}
+
+}
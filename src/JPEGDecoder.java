@@ -0,0 +1,1024 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.io.IOException;
+
+// Baseline and progressive JPEG decoder, produces ARGB rows from top to bottom
+// Can decode at 1/2, 1/4 or 1/8 scale by transforming only low frequency DCT coefficients,
+// so full size bitmap never exists
+// Baseline images with a single interleaved scan are decoded by MCU rows while reading,
+// others have their coefficients buffered first, keeping only the ones used at chosen scale
+// Output can be limited to a range of columns, so a region is decoded without transforming the rest
+final class JPEGDecoder {
+	
+	// zigzag order to natural
+	private static final byte[] ZIGZAG = {
+		0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5,
+		12, 19, 26, 33, 40, 48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28,
+		35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
+		58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63
+	};
+	
+	private static final int FAST_BITS = 9;
+	
+	// YCbCr conversion tables, green ones are 16.16 fixed point
+	private static final int[] CR_R = new int[256];
+	private static final int[] CB_B = new int[256];
+	private static final int[] CR_G = new int[256];
+	private static final int[] CB_G = new int[256];
+	
+	// scaled IDCT cosine tables for 2 and 4 point outputs
+	private static int[][] scaledIdct = new int[5][];
+	
+	static {
+		for (int i = 0; i < 256; i++) {
+			int c = i - 128;
+			CR_R[i] = (91881 * c + 32768) >> 16;
+			CB_B[i] = (116130 * c + 32768) >> 16;
+			CR_G[i] = -46802 * c;
+			CB_G[i] = -22554 * c + 32768;
+		}
+	}
+	
+	// original size
+	final int width;
+	final int height;
+	// output size at chosen scale
+	int scaledWidth;
+	int scaledHeight;
+	
+	private final byte[] data;
+	private final int end;
+	private int pos;
+	
+	private boolean progressive;
+	private boolean rgb;
+	private int ncomp;
+	private int[] compId;
+	private int[] compH;
+	private int[] compV;
+	private int[] compQ;
+	private int hmax;
+	private int vmax;
+	private int mcusx;
+	private int mcusy;
+	private int restartInterval;
+	
+	// quantization tables in zigzag order
+	private int[][] qt = new int[4][];
+	// huffman tables, 0-3 are DC, 4-7 are AC
+	private int[][] hfast = new int[8][];
+	private int[][] hmaxcode = new int[8][];
+	private int[][] hoffset = new int[8][];
+	private byte[][] hvalues = new byte[8][];
+	
+	// log2 of scale and block size at it
+	private int shift;
+	private int n = 8;
+	
+	// current scan
+	private int scanComps;
+	private int[] scanComp = new int[4];
+	private int[] scanDc = new int[4];
+	private int[] scanAc = new int[4];
+	private int ss, se, ah, al;
+	private int[] pred = new int[4];
+	private int eobrun;
+	private int restartsLeft;
+	
+	// entropy coded data reader
+	private int bitBuf;
+	private int bitCnt;
+	private boolean marker;
+	
+	// streaming or buffered
+	private boolean buffered;
+	// blocks per line and column in each component
+	private int[] blocksW;
+	private int[] blocksH;
+	// buffered coefficients per component, for each block in slot order
+	private short[][] coefs;
+	// non-zero history of all 64 coefficients, when not all of them are stored
+	private int[][] nonzero;
+	// coefficients kept per block, slot of each zigzag index or -1, and back
+	private int slots;
+	private int[] slotOf;
+	private int[] slotZigzag;
+	
+	// samples of current MCU row
+	private byte[][] planes;
+	private int[] planeStride;
+	private int planesRow = -1;
+	private int mcuHeight;
+	// last streamed MCU row, its planes may be stale if it was only entropy decoded
+	private int mcuRow = -1;
+	// MCU columns that are transformed, others are only entropy decoded
+	private int colFrom;
+	private int colTo;
+	// entropy decoder state at start of each streamed MCU row, reading can resume from there
+	private static final int STATE = 9;
+	private int[] rowState;
+	private int rowsSaved;
+	// component column of each output column, null if not subsampled
+	private int[][] xmap;
+	private int[] block = new int[64];
+	private int[] tmp = new int[64];
+	private static final int[] ZERO = new int[64];
+	
+	static boolean isJPEG(byte[] b) {
+		return b != null && b.length > 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8;
+	}
+	
+	// Reads headers up to frame size
+	// Throws IOException if image is not JPEG or its type is not supported
+	JPEGDecoder(byte[] data, int offset, int length) throws IOException {
+		this.data = data;
+		this.pos = offset;
+		this.end = offset + length;
+		if (length < 4 || nextMarker() != 0xD8)
+			throw new IOException("Not JPEG");
+		int m;
+		while ((m = nextMarker()) != 0xC0 && m != 0xC1 && m != 0xC2) {
+			if (m == 0xD9 || m == 0xDA || !segment(m))
+				throw new IOException("Unsupported JPEG: " + Integer.toHexString(m));
+		}
+		progressive = m == 0xC2;
+		int p = pos + 2;
+		pos += u16(pos);
+		if ((data[p] & 0xFF) != 8)
+			throw new IOException("Unsupported JPEG precision");
+		height = u16(p + 1);
+		width = u16(p + 3);
+		int nc = ncomp = data[p + 5] & 0xFF;
+		if (height == 0 || width == 0 || (nc != 1 && nc != 3))
+			throw new IOException("Unsupported JPEG frame");
+		compId = new int[nc];
+		compH = new int[nc];
+		compV = new int[nc];
+		compQ = new int[nc];
+		p += 6;
+		for (int i = 0; i < nc; i++, p += 3) {
+			compId[i] = data[p] & 0xFF;
+			// single component is never interleaved, its sampling doesn't matter
+			compH[i] = nc == 1 ? 1 : (data[p + 1] >> 4) & 0xF;
+			compV[i] = nc == 1 ? 1 : data[p + 1] & 0xF;
+			compQ[i] = data[p + 2] & 3;
+			if (compH[i] == 0 || compV[i] == 0)
+				throw new IOException("Unsupported JPEG sampling");
+			if (compH[i] > hmax) hmax = compH[i];
+			if (compV[i] > vmax) vmax = compV[i];
+		}
+		mcusx = (width + hmax * 8 - 1) / (hmax * 8);
+		mcusy = (height + vmax * 8 - 1) / (vmax * 8);
+		colTo = mcusx;
+		setScale(0);
+	}
+	
+	// Picks smallest output that is not less than given size
+	void setScale(int w, int h) {
+		int s = 3;
+		while (s > 0 && (((width + (1 << s) - 1) >> s) < w || ((height + (1 << s) - 1) >> s) < h)) {
+			s--;
+		}
+		setScale(s);
+	}
+	
+	// Sets output scale to 1/(2^s)
+	void setScale(int s) {
+		shift = s;
+		n = 8 >> s;
+		scaledWidth = (width + (1 << s) - 1) >> s;
+		scaledHeight = (height + (1 << s) - 1) >> s;
+	}
+	
+	// Reads tables up to first scan and decodes all scans if image can't be streamed
+	// Must be called after choosing scale, before reading rows
+	void start() throws IOException {
+		begin();
+		if (!buffered) return;
+		
+		int nc = ncomp;
+		coefs = new short[nc][];
+		if (progressive && slots != 64) nonzero = new int[nc][];
+		for (int c = 0; c < nc; c++) {
+			int blocks = blocksW[c] * blocksH[c];
+			coefs[c] = new short[blocks * slots];
+			if (nonzero != null) nonzero[c] = new int[blocks * 2];
+		}
+		int m;
+		while (true) {
+			decodeScan();
+			// next scan or end
+			while ((m = nextMarker()) != 0xDA) {
+				if (m == 0xD9 || !segment(m)) return;
+			}
+			scanHeader();
+		}
+	}
+	
+	// Same as start() for images that are decoded while reading
+	// Returns false without decoding anything if image would be buffered, decoder can't be used then
+	boolean startStreaming() throws IOException {
+		if (progressive) return false;
+		begin();
+		return !buffered;
+	}
+	
+	// reads tables up to first scan and prepares output of MCU row
+	private void begin() throws IOException {
+		int m;
+		while ((m = nextMarker()) != 0xDA) {
+			if (m == 0xD9 || !segment(m))
+				throw new IOException("Unsupported JPEG: " + Integer.toHexString(m));
+		}
+		scanHeader();
+		
+		int nc = ncomp;
+		int n = this.n;
+		blocksW = new int[nc];
+		blocksH = new int[nc];
+		for (int c = 0; c < nc; c++) {
+			blocksW[c] = mcusx * compH[c];
+			blocksH[c] = mcusy * compV[c];
+		}
+		buffered = progressive || scanComps != nc;
+		
+		slotOf = new int[64];
+		slotZigzag = new int[n * n];
+		for (int k = 0; k < 64; k++) {
+			int z = ZIGZAG[k];
+			int u = z & 7, v = z >> 3;
+			if (u < n && v < n) {
+				slotZigzag[v * n + u] = k;
+				slotOf[k] = buffered ? v * n + u : z;
+			} else {
+				slotOf[k] = -1;
+			}
+		}
+		slots = n * n;
+		
+		planes = new byte[nc][];
+		planeStride = new int[nc];
+		xmap = new int[nc][];
+		mcuHeight = vmax * n;
+		for (int c = 0; c < nc; c++) {
+			planeStride[c] = blocksW[c] * n;
+			planes[c] = new byte[planeStride[c] * compV[c] * n];
+			if (compH[c] != hmax) {
+				int[] map = xmap[c] = new int[scaledWidth];
+				for (int x = 0; x < scaledWidth; x++) {
+					map[x] = x * compH[c] / hmax;
+				}
+			}
+		}
+		if (n != 8 && scaledIdct[n] == null) {
+			// T[x][u] = C(u)/2 * cos((2x+1)u*pi/2n), 12 bit fraction
+			int[] t = new int[n * n];
+			for (int x = 0; x < n; x++) {
+				for (int u = 0; u < n; u++) {
+					double c = u == 0 ? Math.sqrt(0.5) : 1.0;
+					t[x * n + u] = (int) Math.floor(2048.0 * c * Math.cos((2 * x + 1) * u * Math.PI / (2 * n)) + 0.5);
+				}
+			}
+			scaledIdct[n] = t;
+		}
+		if (!buffered) rowState = new int[mcusy * STATE];
+	}
+	
+	// Limits output to columns from x0 to x1 at chosen scale, must be called after start()
+	void setColumns(int x0, int x1) {
+		int w = hmax * n;
+		int from = x0 / w, to = Math.min(mcusx, (x1 + w - 1) / w);
+		if (from == colFrom && to == colTo) return;
+		colFrom = from;
+		colTo = to;
+		// current row has other columns transformed
+		planesRow = -1;
+	}
+	
+	void readRow(int y, int[] out) {
+		readRow(y, out, 0, scaledWidth);
+	}
+	
+	// Writes w columns of row y at chosen scale starting from x0
+	// Rows are cheapest to read in ascending order, going back resumes from start of that MCU row
+	void readRow(int y, int[] out, int x0, int w) {
+		if (y >= scaledHeight) y = scaledHeight - 1;
+		int m = y / mcuHeight;
+		if (m != planesRow) {
+			if (buffered) {
+				outputRow(m);
+			} else {
+				// rows before m are only entropy decoded, starting from closest one with known state
+				int r = Math.min(m, rowsSaved - 1);
+				if (m <= mcuRow || r > mcuRow + 1) restore(r);
+				while (mcuRow < m) {
+					decodeRow(mcuRow + 1, mcuRow + 1 == m);
+				}
+			}
+		}
+		y -= m * mcuHeight;
+		byte[][] planes = this.planes;
+		if (ncomp == 1) {
+			byte[] p = planes[0];
+			int i = y * planeStride[0] + x0;
+			for (int x = 0; x < w; x++) {
+				out[x] = 0xFF000000 | (p[i++] & 0xFF) * 0x010101;
+			}
+			return;
+		}
+		byte[] p0 = planes[0], p1 = planes[1], p2 = planes[2];
+		int[] m0 = xmap[0], m1 = xmap[1], m2 = xmap[2];
+		int o0 = (y * compV[0] / vmax) * planeStride[0];
+		int o1 = (y * compV[1] / vmax) * planeStride[1];
+		int o2 = (y * compV[2] / vmax) * planeStride[2];
+		if (rgb) {
+			for (int i = 0; i < w; i++) {
+				int x = x0 + i;
+				out[i] = 0xFF000000
+						| (p0[o0 + (m0 == null ? x : m0[x])] & 0xFF) << 16
+						| (p1[o1 + (m1 == null ? x : m1[x])] & 0xFF) << 8
+						| (p2[o2 + (m2 == null ? x : m2[x])] & 0xFF);
+			}
+			return;
+		}
+		for (int i = 0; i < w; i++) {
+			int x = x0 + i;
+			int l = p0[o0 + (m0 == null ? x : m0[x])] & 0xFF;
+			int cb = p1[o1 + (m1 == null ? x : m1[x])] & 0xFF;
+			int cr = p2[o2 + (m2 == null ? x : m2[x])] & 0xFF;
+			int r = l + CR_R[cr];
+			int g = l + ((CB_G[cb] + CR_G[cr]) >> 16);
+			int b = l + CB_B[cb];
+			if (((r | g | b) & ~0xFF) != 0) {
+				r = r < 0 ? 0 : r > 255 ? 255 : r;
+				g = g < 0 ? 0 : g > 255 ? 255 : g;
+				b = b < 0 ? 0 : b > 255 ? 255 : b;
+			}
+			out[i] = 0xFF000000 | r << 16 | g << 8 | b;
+		}
+	}
+	
+	// markers
+	
+	// Returns next marker, skipping anything before it, EOI if data has ended
+	private int nextMarker() {
+		byte[] d = data;
+		while (pos < end - 1) {
+			if (d[pos] == (byte) 0xFF) {
+				int m = d[pos + 1] & 0xFF;
+				// stuffed zero, fill byte or restart marker left after scan
+				if (m != 0 && m != 0xFF && (m < 0xD0 || m > 0xD7)) {
+					pos += 2;
+					return m;
+				}
+			}
+			pos++;
+		}
+		return 0xD9;
+	}
+	
+	private int u16(int p) {
+		return (data[p] & 0xFF) << 8 | (data[p + 1] & 0xFF);
+	}
+	
+	// Reads marker segment, returns false if it is not supported
+	private boolean segment(int m) throws IOException {
+		if (m == 0xD8 || m == 0x01) return true;
+		if (m >= 0xC3 && m <= 0xCF && m != 0xC4 && m != 0xC8 && m != 0xCC)
+			return false;
+		if (pos + 2 > end)
+			throw new IOException("Unexpected end of JPEG");
+		int len = u16(pos);
+		int p = pos + 2;
+		int e = pos + len;
+		if (e > end)
+			throw new IOException("Unexpected end of JPEG");
+		pos = e;
+		switch (m) {
+		case 0xC4: // DHT
+			while (p < e) {
+				int tc = data[p] & 0xFF;
+				int t = (tc >> 4 == 0 ? 0 : 4) + (tc & 3);
+				p = huffman(t, p + 1, e);
+			}
+			break;
+		case 0xDB: // DQT
+			while (p < e) {
+				int pq = (data[p] >> 4) & 0xF;
+				int[] q = qt[data[p++] & 3] = new int[64];
+				for (int k = 0; k < 64; k++) {
+					if (pq == 0) {
+						q[k] = data[p++] & 0xFF;
+					} else {
+						q[k] = u16(p);
+						p += 2;
+					}
+				}
+			}
+			break;
+		case 0xDD: // DRI
+			restartInterval = u16(p);
+			break;
+		case 0xEE: // APP14
+			if (len >= 14 && data[p] == 'A' && data[p + 1] == 'd' && data[p + 2] == 'o'
+					&& data[p + 3] == 'b' && data[p + 4] == 'e') {
+				rgb = data[p + 11] == 0;
+			}
+			break;
+		}
+		return true;
+	}
+	
+	// Builds huffman table from DHT at p, segment ends at e, returns position after it
+	private int huffman(int t, int p, int e) throws IOException {
+		if (p + 16 > e)
+			throw new IOException("Corrupted JPEG huffman table");
+		int total = 0;
+		for (int l = 0; l < 16; l++) {
+			total += data[p + l] & 0xFF;
+		}
+		if (total > 256 || p + 16 + total > e)
+			throw new IOException("Corrupted JPEG huffman table");
+		int[] fast = hfast[t] = new int[1 << FAST_BITS];
+		int[] max = hmaxcode[t] = new int[18];
+		int[] off = hoffset[t] = new int[17];
+		byte[] values = hvalues[t] = new byte[total];
+		System.arraycopy(data, p + 16, values, 0, total);
+		for (int i = 0; i < fast.length; i++) {
+			fast[i] = -1;
+		}
+		int code = 0, k = 0;
+		for (int l = 1; l <= 16; l++) {
+			int count = data[p + l - 1] & 0xFF;
+			// more codes than fit in l bits
+			if (code + count > 1 << l)
+				throw new IOException("Corrupted JPEG huffman table");
+			off[l] = k - code;
+			for (int i = 0; i < count; i++, k++, code++) {
+				if (l <= FAST_BITS) {
+					int base = code << (FAST_BITS - l);
+					int v = l << 8 | (values[k] & 0xFF);
+					for (int j = 1 << (FAST_BITS - l); j > 0; j--) {
+						fast[base++] = v;
+					}
+				}
+			}
+			max[l] = count == 0 ? -1 : code - 1;
+			code <<= 1;
+		}
+		// sentinel, no code is longer
+		max[17] = Integer.MAX_VALUE;
+		return p + 16 + total;
+	}
+	
+	private void scanHeader() throws IOException {
+		int p = pos + 2;
+		pos += u16(pos);
+		int ns = scanComps = data[p++] & 0xFF;
+		if (ns < 1 || ns > 4)
+			throw new IOException("Corrupted JPEG scan");
+		for (int i = 0; i < ns; i++) {
+			int id = data[p++] & 0xFF;
+			int c = 0;
+			while (c < ncomp && compId[c] != id) c++;
+			if (c == ncomp)
+				throw new IOException("Corrupted JPEG scan");
+			scanComp[i] = c;
+			scanDc[i] = (data[p] >> 4) & 3;
+			scanAc[i] = 4 + (data[p++] & 3);
+		}
+		ss = data[p++] & 0xFF;
+		se = data[p++] & 0xFF;
+		ah = (data[p] >> 4) & 0xF;
+		al = data[p] & 0xF;
+		if (!progressive) {
+			ss = 0;
+			se = 63;
+			ah = al = 0;
+		}
+		if (se > 63) se = 63;
+		resetDecoder();
+	}
+	
+	// entropy decoding
+	
+	private void resetDecoder() {
+		bitBuf = bitCnt = 0;
+		marker = false;
+		pred[0] = pred[1] = pred[2] = pred[3] = 0;
+		eobrun = 0;
+		restartsLeft = restartInterval;
+	}
+	
+	// called before each MCU
+	private void restart() {
+		if (restartInterval == 0) return;
+		if (restartsLeft-- > 0) return;
+		// skip to RSTn
+		byte[] d = data;
+		while (pos < end - 1) {
+			if (d[pos] == (byte) 0xFF) {
+				int m = d[pos + 1] & 0xFF;
+				if (m >= 0xD0 && m <= 0xD7) {
+					pos += 2;
+					break;
+				}
+				if (m != 0 && m != 0xFF) break;
+			}
+			pos++;
+		}
+		resetDecoder();
+		restartsLeft--;
+	}
+	
+	private void fill() {
+		byte[] d = data;
+		while (bitCnt <= 24) {
+			int b = 0;
+			if (!marker && pos < end) {
+				b = d[pos] & 0xFF;
+				if (b == 0xFF) {
+					if (pos + 1 < end && d[pos + 1] == 0) {
+						pos += 2;
+					} else {
+						// marker ends entropy coded segment, zeros are read after it
+						marker = true;
+						b = 0;
+					}
+				} else {
+					pos++;
+				}
+			}
+			bitBuf |= b << (24 - bitCnt);
+			bitCnt += 8;
+		}
+	}
+	
+	private int bits(int n) {
+		if (n == 0) return 0;
+		if (bitCnt < n) fill();
+		int v = bitBuf >>> (32 - n);
+		bitBuf <<= n;
+		bitCnt -= n;
+		return v;
+	}
+	
+	private int bit() {
+		if (bitCnt < 1) fill();
+		int v = bitBuf >>> 31;
+		bitBuf <<= 1;
+		bitCnt--;
+		return v;
+	}
+	
+	// reads n bit value and extends its sign
+	private int receive(int n) {
+		int v = bits(n);
+		return v < (1 << (n - 1)) ? v - (1 << n) + 1 : v;
+	}
+	
+	private int decode(int t) {
+		if (bitCnt < 16) fill();
+		int e = hfast[t][bitBuf >>> (32 - FAST_BITS)];
+		if (e >= 0) {
+			int l = e >> 8;
+			bitBuf <<= l;
+			bitCnt -= l;
+			return e & 0xFF;
+		}
+		int[] max = hmaxcode[t];
+		int code = bitBuf >>> 16;
+		int l = FAST_BITS + 1;
+		while ((code >>> (16 - l)) > max[l]) l++;
+		if (l > 16) {
+			// corrupted, drop bits
+			bitBuf = bitCnt = 0;
+			return 0;
+		}
+		int i = (code >>> (16 - l)) + hoffset[t][l];
+		bitBuf <<= l;
+		bitCnt -= l;
+		byte[] v = hvalues[t];
+		return i >= 0 && i < v.length ? v[i] & 0xFF : 0;
+	}
+	
+	// streaming
+	
+	// decodes MCU row m straight to planes, only entropy decoding it if its output isn't needed
+	private void decodeRow(int m, boolean output) {
+		if (m == rowsSaved) save(m);
+		mcuRow = m;
+		if (output) planesRow = m;
+		int n = this.n;
+		int ns = scanComps;
+		int[] blk = block;
+		int mx = mcusx;
+		int from = output ? colFrom : mx, to = colTo;
+		for (int x = 0; x < mx; x++) {
+			boolean transform = x >= from && x < to;
+			restart();
+			for (int i = 0; i < ns; i++) {
+				int c = scanComp[i];
+				int h = compH[c], v = compV[c];
+				int[] q = qt[compQ[c]];
+				if (q == null) q = ZERO;
+				byte[] plane = planes[c];
+				int stride = planeStride[c];
+				for (int by = 0; by < v; by++) {
+					for (int bx = 0; bx < h; bx++) {
+						decodeBlock(i, blk, q);
+						if (transform) {
+							idct(blk, plane, by * n * stride + (x * h + bx) * n, stride);
+						} else {
+							System.arraycopy(ZERO, 0, blk, 0, 64);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private void save(int m) {
+		int[] s = rowState;
+		int i = m * STATE;
+		s[i] = pos;
+		s[i + 1] = bitBuf;
+		s[i + 2] = bitCnt;
+		s[i + 3] = marker ? 1 : 0;
+		s[i + 4] = restartsLeft;
+		System.arraycopy(pred, 0, s, i + 5, 4);
+		rowsSaved = m + 1;
+	}
+	
+	// goes back to start of MCU row m, which must have been decoded before
+	private void restore(int m) {
+		int[] s = rowState;
+		int i = m * STATE;
+		pos = s[i];
+		bitBuf = s[i + 1];
+		bitCnt = s[i + 2];
+		marker = s[i + 3] != 0;
+		restartsLeft = s[i + 4];
+		System.arraycopy(s, i + 5, pred, 0, 4);
+		mcuRow = m - 1;
+	}
+	
+	// decodes dequantized block in natural order
+	private void decodeBlock(int i, int[] blk, int[] q) {
+		int t = decode(scanDc[i]);
+		int dc = pred[i] += t == 0 ? 0 : receive(t);
+		blk[0] = dc * q[0];
+		int ac = scanAc[i];
+		int[] slot = slotOf;
+		for (int k = 1; k < 64; ) {
+			int rs = decode(ac);
+			int s = rs & 15;
+			if (s == 0) {
+				if (rs != 0xF0) break;
+				k += 16;
+				continue;
+			}
+			k += rs >> 4;
+			if (k > 63) break;
+			int v = receive(s);
+			// coefficients not used at this scale are only skipped
+			int z = slot[k];
+			if (z >= 0) blk[z] = v * q[k];
+			k++;
+		}
+	}
+	
+	// buffered
+	
+	private void decodeScan() {
+		int ns = scanComps;
+		if (ns == 1) {
+			// non-interleaved, blocks in raster order of component itself
+			int c = scanComp[0];
+			int bw = (((width * compH[c] + hmax - 1) / hmax) + 7) >> 3;
+			int bh = (((height * compV[c] + vmax - 1) / vmax) + 7) >> 3;
+			for (int y = 0; y < bh; y++) {
+				for (int x = 0; x < bw; x++) {
+					restart();
+					decodeCoefs(0, c, y * blocksW[c] + x);
+				}
+			}
+			return;
+		}
+		for (int my = 0; my < mcusy; my++) {
+			for (int mx = 0; mx < mcusx; mx++) {
+				restart();
+				for (int i = 0; i < ns; i++) {
+					int c = scanComp[i];
+					int h = compH[c], v = compV[c];
+					for (int by = 0; by < v; by++) {
+						for (int bx = 0; bx < h; bx++) {
+							decodeCoefs(i, c, (my * v + by) * blocksW[c] + mx * h + bx);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	// decodes part of block b of component c given by current scan
+	private void decodeCoefs(int i, int c, int b) {
+		short[] coef = coefs[c];
+		int base = b * slots;
+		int[] slot = slotOf;
+		if (ss == 0) {
+			// DC
+			if (ah == 0) {
+				int t = decode(scanDc[i]);
+				int dc = pred[i] += t == 0 ? 0 : receive(t);
+				coef[base] = (short) (dc << al);
+			} else if (bit() != 0) {
+				coef[base] |= 1 << al;
+			}
+			if (se == 0) return;
+		}
+		int ac = scanAc[i];
+		int k = ss == 0 ? 1 : ss;
+		int e = se;
+		int[] nz = nonzero != null ? nonzero[c] : null;
+		if (ah == 0) {
+			// first AC pass
+			if (eobrun > 0) {
+				eobrun--;
+				return;
+			}
+			for (; k <= e; k++) {
+				int rs = decode(ac);
+				int r = rs >> 4, s = rs & 15;
+				if (s == 0) {
+					if (r < 15) {
+						eobrun = (1 << r) - 1 + bits(r);
+						break;
+					}
+					k += 15;
+					continue;
+				}
+				k += r;
+				if (k > 63) break;
+				int z = slot[k];
+				if (z >= 0) coef[base + z] = (short) (receive(s) << al);
+				else bits(s);
+				if (nz != null) nz[b * 2 + (k >> 5)] |= 1 << (k & 31);
+			}
+			return;
+		}
+		// refinement AC pass
+		int p1 = 1 << al, m1 = -1 << al;
+		if (eobrun == 0) {
+			for (; k <= e; k++) {
+				int rs = decode(ac);
+				int r = rs >> 4, s = rs & 15;
+				if (s != 0) {
+					s = bit() != 0 ? p1 : m1;
+				} else if (r != 15) {
+					eobrun = (1 << r) + bits(r);
+					break;
+				}
+				// skip over already non-zero coefficients and r zero ones, correcting non-zero
+				while (k <= e) {
+					int z = slot[k];
+					if (nz != null ? (nz[b * 2 + (k >> 5)] & (1 << (k & 31))) != 0 : coef[base + z] != 0) {
+						if (bit() != 0 && z >= 0) {
+							int v = coef[base + z];
+							if ((v & p1) == 0) coef[base + z] = (short) (v >= 0 ? v + p1 : v + m1);
+						}
+					} else {
+						if (--r < 0) break;
+					}
+					k++;
+				}
+				if (s != 0 && k <= 63) {
+					int z = slot[k];
+					if (z >= 0) coef[base + z] = (short) s;
+					if (nz != null) nz[b * 2 + (k >> 5)] |= 1 << (k & 31);
+				}
+			}
+		}
+		if (eobrun > 0) {
+			for (; k <= e; k++) {
+				int z = slot[k];
+				if (nz != null ? (nz[b * 2 + (k >> 5)] & (1 << (k & 31))) != 0 : coef[base + z] != 0) {
+					if (bit() != 0 && z >= 0) {
+						int v = coef[base + z];
+						if ((v & p1) == 0) coef[base + z] = (short) (v >= 0 ? v + p1 : v + m1);
+					}
+				}
+			}
+			eobrun--;
+		}
+	}
+	
+	// transforms MCU row m from buffered coefficients
+	private void outputRow(int m) {
+		planesRow = m;
+		int n = this.n;
+		int[] blk = block;
+		int[] zz = slotZigzag;
+		byte[] nat = ZIGZAG;
+		for (int c = 0; c < ncomp; c++) {
+			int[] q = qt[compQ[c]];
+			if (q == null) q = ZERO;
+			short[] coef = coefs[c];
+			byte[] plane = planes[c];
+			int stride = planeStride[c];
+			int bw = blocksW[c];
+			int h = compH[c], v = compV[c];
+			int bx0 = colFrom * h, bx1 = colTo * h;
+			for (int by = 0; by < v; by++) {
+				int b = ((m * v + by) * bw + bx0) * slots;
+				for (int bx = bx0; bx < bx1; bx++) {
+					for (int i = 0; i < slots; i++, b++) {
+						int k = zz[i];
+						blk[nat[k]] = coef[b] * q[k];
+					}
+					idct(blk, plane, by * n * stride + bx * n, stride);
+				}
+			}
+		}
+	}
+	
+	// IDCT
+	
+	// transforms block to n*n samples and clears it
+	private void idct(int[] blk, byte[] out, int off, int stride) {
+		switch (n) {
+		case 8:
+			idct8(blk, out, off, stride);
+			break;
+		case 1: {
+			int v = ((blk[0] + 4) >> 3) + 128;
+			out[off] = (byte) (v < 0 ? 0 : v > 255 ? 255 : v);
+			blk[0] = 0;
+			return;
+		}
+		default:
+			idctScaled(blk, out, off, stride);
+			break;
+		}
+		System.arraycopy(ZERO, 0, blk, 0, 64);
+	}
+	
+	// n point transform of low frequency n*n coefficients, sampled at centers of 8/n pixel groups
+	private void idctScaled(int[] blk, byte[] out, int off, int stride) {
+		int n = this.n;
+		int[] t = scaledIdct[n];
+		int[] tmp = this.tmp;
+		for (int u = 0; u < n; u++) {
+			for (int y = 0; y < n; y++) {
+				int s = 0;
+				for (int v = 0, ti = y * n; v < n; v++) {
+					s += t[ti + v] * blk[v * 8 + u];
+				}
+				tmp[y * n + u] = (s + 256) >> 9;
+			}
+		}
+		for (int y = 0; y < n; y++) {
+			for (int x = 0; x < n; x++) {
+				int s = 0;
+				for (int u = 0, ti = x * n, yi = y * n; u < n; u++) {
+					s += t[ti + u] * tmp[yi + u];
+				}
+				s = ((s + (1 << 14)) >> 15) + 128;
+				out[off + x] = (byte) (s < 0 ? 0 : s > 255 ? 255 : s);
+			}
+			off += stride;
+		}
+	}
+	
+	// integer 8x8 IDCT with 12 bit constants, based on stb_image and IJG jidctint
+	private void idct8(int[] d, byte[] out, int off, int stride) {
+		int[] v = tmp;
+		int t0, t1, t2, t3, p1, p2, p3, p4, p5, x0, x1, x2, x3;
+		// columns
+		for (int i = 0; i < 8; i++) {
+			if (d[i + 8] == 0 && d[i + 16] == 0 && d[i + 24] == 0 && d[i + 32] == 0
+					&& d[i + 40] == 0 && d[i + 48] == 0 && d[i + 56] == 0) {
+				int dc = d[i] << 2;
+				v[i] = v[i + 8] = v[i + 16] = v[i + 24] = v[i + 32] = v[i + 40] = v[i + 48] = v[i + 56] = dc;
+				continue;
+			}
+			p2 = d[i + 16];
+			p3 = d[i + 48];
+			p1 = (p2 + p3) * 2217;
+			t2 = p1 + p3 * -7567;
+			t3 = p1 + p2 * 3135;
+			p2 = d[i];
+			p3 = d[i + 32];
+			t0 = (p2 + p3) << 12;
+			t1 = (p2 - p3) << 12;
+			x0 = t0 + t3;
+			x3 = t0 - t3;
+			x1 = t1 + t2;
+			x2 = t1 - t2;
+			t0 = d[i + 56];
+			t1 = d[i + 40];
+			t2 = d[i + 24];
+			t3 = d[i + 8];
+			p3 = t0 + t2;
+			p4 = t1 + t3;
+			p1 = t0 + t3;
+			p2 = t1 + t2;
+			p5 = (p3 + p4) * 4816;
+			t0 = t0 * 1223;
+			t1 = t1 * 8410;
+			t2 = t2 * 12586;
+			t3 = t3 * 6149;
+			p1 = p5 + p1 * -3685;
+			p2 = p5 + p2 * -10497;
+			p3 = p3 * -8034;
+			p4 = p4 * -1597;
+			t3 += p1 + p4;
+			t2 += p2 + p3;
+			t1 += p2 + p4;
+			t0 += p1 + p3;
+			x0 += 512; x1 += 512; x2 += 512; x3 += 512;
+			v[i] = (x0 + t3) >> 10;
+			v[i + 56] = (x0 - t3) >> 10;
+			v[i + 8] = (x1 + t2) >> 10;
+			v[i + 48] = (x1 - t2) >> 10;
+			v[i + 16] = (x2 + t1) >> 10;
+			v[i + 40] = (x2 - t1) >> 10;
+			v[i + 24] = (x3 + t0) >> 10;
+			v[i + 32] = (x3 - t0) >> 10;
+		}
+		// rows
+		for (int i = 0; i < 64; i += 8, off += stride) {
+			p2 = v[i + 2];
+			p3 = v[i + 6];
+			p1 = (p2 + p3) * 2217;
+			t2 = p1 + p3 * -7567;
+			t3 = p1 + p2 * 3135;
+			p2 = v[i];
+			p3 = v[i + 4];
+			t0 = (p2 + p3) << 12;
+			t1 = (p2 - p3) << 12;
+			x0 = t0 + t3;
+			x3 = t0 - t3;
+			x1 = t1 + t2;
+			x2 = t1 - t2;
+			t0 = v[i + 7];
+			t1 = v[i + 5];
+			t2 = v[i + 3];
+			t3 = v[i + 1];
+			p3 = t0 + t2;
+			p4 = t1 + t3;
+			p1 = t0 + t3;
+			p2 = t1 + t2;
+			p5 = (p3 + p4) * 4816;
+			t0 = t0 * 1223;
+			t1 = t1 * 8410;
+			t2 = t2 * 12586;
+			t3 = t3 * 6149;
+			p1 = p5 + p1 * -3685;
+			p2 = p5 + p2 * -10497;
+			p3 = p3 * -8034;
+			p4 = p4 * -1597;
+			t3 += p1 + p4;
+			t2 += p2 + p3;
+			t1 += p2 + p4;
+			t0 += p1 + p3;
+			// 12 bits of constants, 2 from columns and 3 from normalization, plus level shift
+			x0 += 65536 + (128 << 17);
+			x1 += 65536 + (128 << 17);
+			x2 += 65536 + (128 << 17);
+			x3 += 65536 + (128 << 17);
+			out[off] = clamp((x0 + t3) >> 17);
+			out[off + 7] = clamp((x0 - t3) >> 17);
+			out[off + 1] = clamp((x1 + t2) >> 17);
+			out[off + 6] = clamp((x1 - t2) >> 17);
+			out[off + 2] = clamp((x2 + t1) >> 17);
+			out[off + 5] = clamp((x2 - t1) >> 17);
+			out[off + 3] = clamp((x3 + t0) >> 17);
+			out[off + 4] = clamp((x3 - t0) >> 17);
+		}
+	}
+	
+	private static byte clamp(int v) {
+		return (byte) (v < 0 ? 0 : v > 255 ? 255 : v);
+	}
+
+}
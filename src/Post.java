@@ -0,0 +1,63 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// Post fields used by the app, decoded straight from response
+public class Post {
+	
+	static final String[] TAG_LABELS = {
+			"Tags", "Artist", "Copyright", "Character", "Species", "General", "Lore", "Meta"
+	};
+	
+	static final int TAGS = 0;
+	static final int TAGS_ARTIST = 1;
+	static final int TAGS_COPYRIGHT = 2;
+	static final int TAGS_CHARACTER = 3;
+	static final int TAGS_SPECIES = 4;
+	static final int TAGS_GENERAL = 5;
+	static final int TAGS_LORE = 6;
+	static final int TAGS_META = 7;
+	
+	String id;
+	String preview;
+	String sample;
+	String file;
+	int width;
+	int height;
+	int size;
+	String md5;
+	// space separated, indexed by category
+	String[] tags;
+	
+	// loaded with limited fields, must be requested again to be shown
+	boolean partial;
+	
+	// parts of urls for backends that build them in finish(), null after it
+	String directory;
+	String image;
+	
+	void setTags(int category, String t) {
+		if (t == null || t.length() == 0) return;
+		if (tags == null) tags = new String[TAG_LABELS.length];
+		tags[category] = t;
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+import java.io.IOException;
+
+import cc.nnproject.json.JSONStream;
+
+// Gelbooru 0.2 without urls in response
+public class SafebooruBackend extends GelbooruBackend {
+
+	SafebooruBackend() {
+		super("https://safebooru.org/");
+	}
+
+	void read(Post p, int key, JSONStream s) throws IOException {
+		switch (key) {
+		case 8:
+			p.directory = string(s);
+			break;
+		case 9:
+			p.image = string(s);
+			break;
+		default:
+			super.read(p, key, s);
+		}
+	}
+	
+	void finish(Post p) {
+		String directory = p.directory, image = p.image;
+		if (directory != null && image != null) {
+			if (p.preview == null)
+				p.preview = url + "thumbnails/" + directory + "/thumbnail_" + image + '?' + p.id;
+			if (p.file == null)
+				p.file = url + "images/" + directory + '/' + image + '?' + p.id;
+		}
+		p.directory = p.image = null;
+	}
+
+}
@@ -22,19 +22,87 @@ public class ViewCommon extends Canvas implements Runnable {
 
 	static Image slider;
 	
+	// thumbnail fitted to screen, shown until image is ready
+	protected Image placeholder;
+	
 	private boolean hwa;
 	
 	// SWR only
 	private Image toDraw;
+	// image fitted to screen, kept while zoomed
 	private Image orig;
+	// size of image fitted to screen, 0 if not known for current screen
+	private int fitW;
+	private int fitH;
+	private int fitScreen;
+	// everything decoded or downloaded for current post
+	private ImagePyramid pyramid;
+	
+	// zoom above 1 is drawn in tiles as they become visible, so enlarged image never exists as a whole
+	private Image[] tiles;
+	private int[] tileKeys;
+	private int[] tileUsed;
+	// false for placeholder tiles waiting to be replaced
+	private boolean[] tileFinal;
+	private int tileClock;
+	private int tileSize;
+	private int tileCols;
+	private int tileRows;
+	// size of zoomed image
+	private int tilesW;
+	private int tilesH;
+	// last painted tile range
+	private int visX0, visX1, visY0, visY1;
+	private boolean prefetching;
+	// with online resize tiles are cropped by proxy and fetched in background,
+	// until then they are scaled from screen sized orig
+	private boolean remoteTiles;
+	// baseline JPEG that local tiles are decoded from region by region, if null they are scaled from orig
+	private JPEGDecoder tileSource;
+	private final Object tileLock = new Object();
+	private final Runnable prefetch = new Runnable() {
+		public void run() {
+			if (prefetchTile()) {
+				bIApp.callSerially(this);
+			} else {
+				prefetching = false;
+			}
+		}
+	};
 
 	private boolean firstDraw = true;
 
-	private boolean resizing;
+	// zoom waiting for render worker, 0 if none, newer request replaces it
+	private int pendingZoom;
+	private Thread renderWorker;
+	private final Object renderLock = new Object();
+	private final Runnable render = new Runnable() {
+		public void run() {
+			while (true) {
+				int size;
+				synchronized (renderLock) {
+					while ((size = pendingZoom) == 0) {
+						try {
+							renderLock.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					pendingZoom = 0;
+				}
+				// waits for initial load
+				synchronized (ViewCommon.this) {
+					resize(size);
+				}
+				repaint();
+			}
+		}
+	};
 
 
 	/**
-	 * Creates the view.
+	 * Creates the view. Loading is started by {@link #reload()} once it is constructed,
+	 * from here it would run before fields of subclass are set.
 	 * 
 	 * @param emo  Object with data.
 	 * @param prev Previous screen.
@@ -42,7 +110,6 @@ public class ViewCommon extends Canvas implements Runnable {
 	 */
 	public ViewCommon(boolean hwa) {
 		this.hwa = hwa;
-		reload();
 		setFullScreenMode(true);
 		if (slider == null) {
 			try {
@@ -61,8 +128,13 @@ public class ViewCommon extends Canvas implements Runnable {
 	 * @throws InterruptedException
 	 */
 	protected final byte[] getImage() throws InterruptedException {
+		ImagePyramid p = pyramid;
+		byte[] b = p != null ? p.getSource() : null;
+		if (b != null) return b;
 		try {
-			return bIApp.getPostImage(null);
+			b = bIApp.getPostImage(null);
+			if (p != null) p.setSource(b);
+			return b;
 		} catch (Exception e) {
 		}
 		return null;
@@ -88,12 +160,19 @@ public class ViewCommon extends Canvas implements Runnable {
 				zoom = 1;
 				x = 0;
 				y = 0;
+				if (pyramid == null || pyramid.post != bIApp.post) {
+					pyramid = new ImagePyramid(bIApp.post);
+					fitScreen = 0;
+				}
 				reset();
+				placeholder = placeholder();
+				repaint();
 				try {
 					prepare();
 					repaint();
 					resize(1);
 					zoom = 1;
+					if (toDraw != null) placeholder = null;
 				} catch (Exception e) {
 					error = true;
 					e.printStackTrace();
@@ -101,7 +180,9 @@ public class ViewCommon extends Canvas implements Runnable {
 				repaint();
 			}
 		} catch (OutOfMemoryError e) {
-			toDraw = orig = null;
+			toDraw = orig = placeholder = null;
+			stopTiles();
+			if (pyramid != null) pyramid.clear();
 			bIApp.display(null);
 			try {
 				Thread.sleep(100);
@@ -112,10 +193,26 @@ public class ViewCommon extends Canvas implements Runnable {
 		}
 	}
 
+	private Image placeholder() {
+		Image t = bIApp.getPostThumb();
+		if (t == null) return null;
+		int h = getHeight();
+		int w = h * t.getWidth() / t.getHeight();
+		if (w > getWidth()) {
+			w = getWidth();
+			h = w * t.getHeight() / t.getWidth();
+		}
+		try {
+			return bIApp.resize(t, w, h);
+		} catch (OutOfMemoryError e) {
+			return null;
+		}
+	}
+
 	protected void limitOffset() {
 		if (hwa) return;
-		int hw = (toDraw.getWidth() - getWidth()) / 2;
-		int hh = (toDraw.getHeight() - getHeight()) / 2;
+		int hw = ((tiles != null ? tilesW : toDraw.getWidth()) - getWidth()) / 2;
+		int hh = ((tiles != null ? tilesH : toDraw.getHeight()) - getHeight()) / 2;
 		if (x < -hw) x = -hw;
 		if (x > hw) x = hw;
 		if (y < -hh) y = -hh;
@@ -129,6 +226,7 @@ public class ViewCommon extends Canvas implements Runnable {
 		if (hwa) return;
 		toDraw = null;
 		orig = null;
+		stopTiles();
 	}
 	
 	void prepare() throws InterruptedException {}
@@ -140,57 +238,406 @@ public class ViewCommon extends Canvas implements Runnable {
 	 */
 	protected void resize(int size) {
 		if (hwa) return;
-		resizing = true;
 		try {
 			toDraw = null;
+			orig = null;
+			stashTiles();
 			System.gc();
 			repaint();
-			Image origImg;
-			if (!bIApp.onlineResize && bIApp.keepBitmap && orig != null && orig.getHeight() != 1 && orig.getWidth() != 1) {
-				origImg = orig;
-			} else {
-				int l = -1;
-				byte[] b;
+			try {
+				doResize(size);
+			} catch (OutOfMemoryError e) {
+				// retry with nothing cached
+				toDraw = orig = null;
+				stopTiles();
+				pyramid.clear();
+				System.gc();
+				doResize(size);
+			}
+			if (toDraw == null && !superseded()) error = true;
+		} catch (Throwable e) {
+			e.printStackTrace();
+			error = true;
+			toDraw = orig = null;
+			stopTiles();
+			return;
+		}
+	}
+	
+	// Schedules resize to current zoom, replacing request that wasn't started yet
+	protected final void requestResize() {
+		synchronized (renderLock) {
+			pendingZoom = (int) zoom;
+			if (renderWorker == null) {
+				renderWorker = new Thread(render);
+				renderWorker.start();
+			}
+			renderLock.notify();
+		}
+	}
+	
+	// newer zoom was requested, current one will never be shown
+	private boolean superseded() {
+		synchronized (renderLock) {
+			return pendingZoom != 0;
+		}
+	}
+	
+	private void doResize(int size) throws InterruptedException {
+		if (superseded()) return;
+		int screen = getWidth() << 16 | getHeight();
+		if (fitScreen != screen) {
+			fitScreen = screen;
+			fitW = fitH = 0;
+			if (pyramid.width > 0) fit(pyramid.width, pyramid.height);
+		}
+		if (bIApp.onlineResize) {
+			if (size == 1 || pyramid.noCrop) {
+				toDraw = level(size);
+			} else if ((orig = level(1)) != null) {
+				// only tiles around viewport are downloaded, screen sized image is a placeholder
+				startTiles(fitW * size, fitH * size, true);
+				toDraw = orig;
+			}
+			return;
+		}
+		if (size == 1) {
+			toDraw = level(1);
+		} else if ((orig = level(1)) != null) {
+			// bigger zoom is decoded only where visible
+			startTiles(fitW * size, fitH * size, false);
+			toDraw = orig;
+		}
+	}
+	
+	// Returns whole image fitted to screen with given zoom, from cache, scaled down from a bigger cached one,
+	// or loaded, null on error
+	private Image level(int zoom) throws InterruptedException {
+		ImagePyramid p = pyramid;
+		Image img;
+		if (fitW != 0) {
+			int w = fitW * zoom, h = fitH * zoom;
+			if ((img = p.get(w, h)) != null) return img;
+			if ((img = p.larger(w, h)) != null) {
+				img = bIApp.resize(img, w, h);
+				p.put(img);
+				return img;
+			}
+		}
+		if (superseded()) return null;
+		if (bIApp.onlineResize) {
+			byte[] b = getResizedImage(zoom);
+			if (b == null || (img = decode(b)) == null) return null;
+			if (p.width == 0) {
+				p.width = img.getWidth();
+				p.height = img.getHeight();
+			}
+			// proxy decides exact size
+			fitW = img.getWidth() / zoom;
+			fitH = img.getHeight() / zoom;
+		} else if ((img = load(zoom)) == null) {
+			return null;
+		}
+		p.put(img);
+		return img;
+	}
+	
+	private void fit(int iw, int ih) {
+		int h = getHeight();
+		int w = (int) (((float) h / ih) * iw);
+
+		if (w > getWidth()) {
+			w = getWidth();
+			h = (int) (((float) w / iw) * ih);
+		}
+		fitW = w;
+		fitH = h;
+	}
+	
+	// Decodes the image scaled to fit screen with given zoom, null on error
+	// JPEG is decoded directly at needed size when possible
+	private Image load(int zoom) throws InterruptedException {
+		byte[] b = getImage();
+		if (b == null) return null;
+		JPEGDecoder jpeg = null;
+		Image img = null;
+		if (JPEGDecoder.isJPEG(b)) {
+			try {
+				jpeg = new JPEGDecoder(b, 0, b.length);
+			} catch (Exception e) {
+				// unsupported type or corrupted header, left to platform
+			}
+		}
+		if (jpeg == null) {
+			if ((img = decode(b)) == null) return null;
+			b = null;
+			System.gc();
+		}
+		int iw = jpeg != null ? jpeg.width : img.getWidth();
+		int ih = jpeg != null ? jpeg.height : img.getHeight();
+		pyramid.width = iw;
+		pyramid.height = ih;
+		fit(iw, ih);
+		int w = fitW, h = fitH;
+		if (jpeg != null) {
+			try {
+				return bIApp.resize(jpeg, w * zoom, h * zoom);
+			} catch (Exception e) {
+				// corrupted data is decoded by platform, which may be more tolerant
+				e.printStackTrace();
+				if ((img = decode(b)) == null) return null;
+				b = null;
+			}
+		}
+		return bIApp.resize(img, w * zoom, h * zoom);
+	}
+	
+	// tiles
+	
+	private void startTiles(int w, int h, boolean remote) throws InterruptedException {
+		JPEGDecoder d = remote ? null : tileSource(w, h);
+		int m = Math.min(getWidth(), getHeight());
+		// downloaded tiles are bigger to save requests
+		int t = remote ? Math.max(64, m / 2) : Math.max(32, m / 4);
+		// visible tiles, partial ones on both sides, and one tile margin
+		int n = (getWidth() / t + 4) * (getHeight() / t + 4);
+		// tiles of this zoom may be left from previous visit
+		Object[] set = pyramid.takeTiles(w << 16 | h);
+		if (set == null || ((int[]) set[4])[0] != (remote ? t : -t)) {
+			set = new Object[] { new Image[n], new int[n], new int[n], new boolean[n] };
+		}
+		final Image[] tiles = (Image[]) set[0];
+		// paint may be in tile() with previous set, so it is replaced as a whole
+		synchronized (tileLock) {
+			tileSize = t;
+			tilesW = w;
+			tilesH = h;
+			tileCols = (w + t - 1) / t;
+			tileRows = (h + t - 1) / t;
+			remoteTiles = remote;
+			tileSource = d;
+			tileKeys = (int[]) set[1];
+			tileUsed = (int[]) set[2];
+			tileFinal = (boolean[]) set[3];
+			this.tiles = tiles;
+		}
+		if (remote) {
+			new Thread() {
+				public void run() {
+					loadTiles(tiles);
+				}
+			}.start();
+		}
+	}
+	
+	// Returns streaming decoder of image at scale covering w x h, null if it's not a baseline JPEG
+	private JPEGDecoder tileSource(int w, int h) throws InterruptedException {
+		byte[] b = getImage();
+		if (b == null || !JPEGDecoder.isJPEG(b)) return null;
+		try {
+			JPEGDecoder d = new JPEGDecoder(b, 0, b.length);
+			d.setScale(w, h);
+			// progressive one would keep coefficients of whole image
+			if (d.startStreaming()) return d;
+		} catch (Exception e) {
+			// unsupported type or corrupted header, tiles are scaled from orig
+		}
+		return null;
+	}
+	
+	// Stops showing tiles, keeping them in pyramid
+	private void stashTiles() {
+		synchronized (tileLock) {
+			Image[] tiles = this.tiles;
+			if (tiles == null) return;
+			stopTiles();
+			pyramid.putTiles(tilesW << 16 | tilesH,
+					new Object[] { tiles, tileKeys, tileUsed, tileFinal, new int[] { remoteTiles ? tileSize : -tileSize } },
+					tiles);
+		}
+	}
+	
+	private void stopTiles() {
+		synchronized (tileLock) {
+			tiles = null;
+			tileSource = null;
+			tileLock.notify();
+		}
+	}
+	
+	// Returns tile from cache or scales it, replacing least recently used one
+	private Image tile(Image[] tiles, int tx, int ty) {
+		synchronized (tileLock) {
+			// set was replaced after caller took it
+			if (tiles != this.tiles) return null;
+			int key = ty * tileCols + tx;
+			int slot = slot(tiles, key);
+			if (tiles[slot] != null && tileKeys[slot] == key) {
+				return tiles[slot];
+			}
+			Image base = orig;
+			if (base == null) return null;
+			tiles[slot] = null;
+			int t = tileSize;
+			int x = tx * t, y = ty * t;
+			int w = Math.min(t, tilesW - x), h = Math.min(t, tilesH - y);
+			Image img = null;
+			if (tileSource != null) {
 				try {
-					b = bIApp.onlineResize ? getResizedImage(size) : getImage();
-					l = b.length;
-					origImg = Image.createImage(b, 0, b.length);
-					b = null;
-					System.gc();
+					img = bIApp.resize(tileSource, tilesW, tilesH, x, y, w, h);
 				} catch (RuntimeException e) {
+					// corrupted data, rest of tiles are scaled from orig
 					e.printStackTrace();
-					System.out.println("Failed to decode an image in resizing. Size=" + l + "bytes");
-					origImg = null;
+					tileSource = null;
 				}
 			}
-			resizing = false;
-			if (origImg == null) {
-				error = true;
-				toDraw = null;
-				return;
+			if (img == null) img = bIApp.resize(base, tilesW, tilesH, x, y, w, h);
+			tileKeys[slot] = key;
+			tileFinal[slot] = !remoteTiles;
+			return tiles[slot] = img;
+		}
+	}
+	
+	// Finds cached tile or slot to replace, marks it as used
+	private int slot(Image[] tiles, int key) {
+		int n = tiles.length;
+		int slot = 0;
+		for (int i = 0; i < n; i++) {
+			if (tiles[i] == null) {
+				slot = i;
+				continue;
+			}
+			if (tileKeys[i] == key) {
+				slot = i;
+				break;
+			}
+			if (tiles[slot] != null && tileUsed[i] < tileUsed[slot]) slot = i;
+		}
+		tileUsed[slot] = ++tileClock;
+		return slot;
+	}
+	
+	private void paintTiles(Graphics g, Image[] tiles) {
+		int t = tileSize;
+		int sw = getWidth(), sh = getHeight();
+		int ox = (int) x + sw / 2 - tilesW / 2;
+		int oy = (int) y + sh / 2 - tilesH / 2;
+		int tx0 = Math.max(0, -ox / t), tx1 = Math.min(tileCols - 1, (sw - 1 - ox) / t);
+		int ty0 = Math.max(0, -oy / t), ty1 = Math.min(tileRows - 1, (sh - 1 - oy) / t);
+		for (int ty = ty0; ty <= ty1; ty++) {
+			for (int tx = tx0; tx <= tx1; tx++) {
+				Image img = tile(tiles, tx, ty);
+				if (img != null) g.drawImage(img, ox + tx * t, oy + ty * t, 0);
+			}
+		}
+		// margin is prepared between frames
+		visX0 = tx0;
+		visX1 = tx1;
+		visY0 = ty0;
+		visY1 = ty1;
+		if (remoteTiles) {
+			synchronized (tileLock) {
+				tileLock.notify();
 			}
-			
-			if (!bIApp.onlineResize) {
-				int h = getHeight();
-				int w = (int) (((float) h / origImg.getHeight()) * origImg.getWidth());
+		} else if (!prefetching) {
+			prefetching = true;
+			bIApp.callSerially(prefetch);
+		}
+	}
 	
-				if (w > getWidth()) {
-					w = getWidth();
-					h = (int) (((float) w / origImg.getWidth()) * origImg.getHeight());
+	// Returns key of first tile in visible range extended by margin that is missing or not final, -1 if there are none
+	private int missingTile(Image[] tiles, int margin) {
+		int tx0 = Math.max(0, visX0 - margin), tx1 = Math.min(tileCols - 1, visX1 + margin);
+		int ty0 = Math.max(0, visY0 - margin), ty1 = Math.min(tileRows - 1, visY1 + margin);
+		for (int ty = ty0; ty <= ty1; ty++) {
+			search: for (int tx = tx0; tx <= tx1; tx++) {
+				int key = ty * tileCols + tx;
+				for (int i = 0; i < tiles.length; i++) {
+					if (tiles[i] != null && tileKeys[i] == key && tileFinal[i]) continue search;
 				}
+				return key;
+			}
+		}
+		return -1;
+	}
 	
-				h = h * size;
-				w = w * size;
-				toDraw = bIApp.resize(origImg, w, h);
-			} else {
-				toDraw = origImg;
+	// scales one missing tile around visible ones, returns false if there are none left
+	private boolean prefetchTile() {
+		synchronized (tileLock) {
+			Image[] tiles = this.tiles;
+			if (tiles == null || remoteTiles) return false;
+			int key = missingTile(tiles, 1);
+			if (key == -1) return false;
+			tile(tiles, key % tileCols, key / tileCols);
+			return true;
+		}
+	}
+	
+	// Downloads visible tiles, then ones around them, while this tile set is shown
+	private void loadTiles(Image[] tiles) {
+		while (this.tiles == tiles) {
+			int key, t, x, y, w, h, tw, th;
+			synchronized (tileLock) {
+				if (this.tiles != tiles) return;
+				if ((key = missingTile(tiles, 0)) == -1 && (key = missingTile(tiles, 1)) == -1) {
+					try {
+						tileLock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+					continue;
+				}
+				t = tileSize;
+				tw = tilesW;
+				th = tilesH;
+				x = (key % tileCols) * t;
+				y = (key / tileCols) * t;
+				w = Math.min(t, tw - x);
+				h = Math.min(t, th - y);
 			}
-		} catch (Throwable e) {
+			Image img = null;
+			try {
+				byte[] b = bIApp.getPostTile(tw, th, x, y, w, h);
+				if (b != null) img = decode(b);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			synchronized (tileLock) {
+				if (this.tiles != tiles) return;
+				if (img == null || img.getWidth() < w || img.getHeight() < h) {
+					// keep placeholders, scaling rest of them locally
+					remoteTiles = false;
+					for (int i = 0; i < tiles.length; i++) {
+						tileFinal[i] = true;
+					}
+					repaint();
+					return;
+				}
+				if (img.getWidth() > w || img.getHeight() > h) {
+					// proxy ignored crop and sent whole image
+					this.tiles = null;
+					pyramid.noCrop = true;
+					pyramid.put(img);
+					toDraw = img;
+					repaint();
+					return;
+				}
+				int slot = slot(tiles, key);
+				tiles[slot] = img;
+				tileKeys[slot] = key;
+				tileFinal[slot] = true;
+			}
+			repaint();
+		}
+	}
+	
+	private static Image decode(byte[] b) {
+		try {
+			return Image.createImage(b, 0, b.length);
+		} catch (RuntimeException e) {
 			e.printStackTrace();
-			resizing = false;
-			error = true;
-			toDraw = null;
-			return;
+			System.out.println("Failed to decode an image in resizing. Size=" + (b == null ? -1 : b.length) + "bytes");
+			return null;
 		}
 	}
 	
@@ -200,18 +647,22 @@ public class ViewCommon extends Canvas implements Runnable {
 			Font f = bIApp.smallfont;
 			g.setFont(f);
 			if (toDraw == null) {
-				if (firstDraw) {
+				if (firstDraw || placeholder != null) {
 					firstDraw = false;
 					g.setGrayScale(0);
 					g.fillRect(0, 0, getWidth(), getHeight());
 				}
+				paintPlaceholder(g);
 				paintNullImg(g, f);
 			} else {
 				// bg fill
 				g.setGrayScale(0);
 				g.fillRect(0, 0, getWidth(), getHeight());
 				limitOffset();
-				if (zoom != 1) {
+				Image[] tiles = this.tiles;
+				if (tiles != null) {
+					paintTiles(g, tiles);
+				} else if (zoom != 1) {
 					g.drawImage(toDraw, (int) x + getWidth() / 2, (int) y + getHeight() / 2,
 							Graphics.HCENTER | Graphics.VCENTER);
 				} else {
@@ -234,6 +685,11 @@ public class ViewCommon extends Canvas implements Runnable {
 		}
 	}
 
+	// rotation, cached data is rescaled for new screen
+	protected void sizeChanged(int w, int h) {
+		if (!hwa && toDraw != null) requestResize();
+	}
+
 	String[] touchCaps = new String[] { "x1", "x2", "x3", "<-", "goto", "->", "Back" };
 
 	boolean touchCtrlShown = true;
@@ -266,7 +722,9 @@ public class ViewCommon extends Canvas implements Runnable {
 				e.printStackTrace();
 			}
 			bIApp.display(null);
-			toDraw = orig = null;
+			toDraw = orig = placeholder = null;
+			stopTiles();
+			if (pyramid != null) pyramid.clear();
 			return;
 		}
 //		if (!canDraw()) {
@@ -274,47 +732,45 @@ public class ViewCommon extends Canvas implements Runnable {
 //			return;
 //		}
 
-		if (!resizing) {
-			// zooming via *0#
-			if (k == KEY_STAR) {
-				zoom = 1;
-				bIApp.midlet.start(bIApp.RUN_ZOOM_VIEW);
+		// zooming via *0#
+		if (k == KEY_STAR) {
+			zoom = 1;
+			requestResize();
+		}
+		if (k == KEY_NUM0) {
+			zoom = 2;
+			requestResize();
+		}
+		if (k == KEY_POUND) {
+			zoom = 3;
+			requestResize();
+		}
+
+		// zoom is active
+		if (zoom != 1) {
+			if (k == -5) {
+				zoom++;
+				if (zoom > 3)
+					zoom = 1;
+
+				requestResize();
+			} else if (k == -1 || k == KEY_NUM2 || k == 'w') {
+				// up
+				y += getHeight() * panDeltaMul() / 4;
+			} else if (k == -2 || k == KEY_NUM8 || k == 's') {
+				y -= getHeight() * panDeltaMul() / 4;
+			} else if (k == -3 || k == KEY_NUM4 || k == 'a') {
+				x += getWidth() * panDeltaMul() / 4;
+			} else if (k == -4 || k == KEY_NUM6 || k == 'd') {
+				x -= getWidth() * panDeltaMul() / 4;
 			}
-			if (k == KEY_NUM0) {
+		} else {
+			// zoom inactive
+			if (k == -5) {
 				zoom = 2;
-				bIApp.midlet.start(bIApp.RUN_ZOOM_VIEW);
-			}
-			if (k == KEY_POUND) {
-				zoom = 3;
-				bIApp.midlet.start(bIApp.RUN_ZOOM_VIEW);
-			}
-	
-			// zoom is active
-			if (zoom != 1) {
-				if (k == -5) {
-					zoom++;
-					if (zoom > 3)
-						zoom = 1;
-	
-					resize((int) zoom);
-				} else if (k == -1 || k == KEY_NUM2 || k == 'w') {
-					// up
-					y += getHeight() * panDeltaMul() / 4;
-				} else if (k == -2 || k == KEY_NUM8 || k == 's') {
-					y -= getHeight() * panDeltaMul() / 4;
-				} else if (k == -3 || k == KEY_NUM4 || k == 'a') {
-					x += getWidth() * panDeltaMul() / 4;
-				} else if (k == -4 || k == KEY_NUM6 || k == 'd') {
-					x -= getWidth() * panDeltaMul() / 4;
-				}
-			} else {
-				// zoom inactive
-				if (k == -5) {
-					zoom = 2;
-					x = 0;
-					y = 0;
-					bIApp.midlet.start(bIApp.RUN_ZOOM_VIEW);
-				}
+				x = 0;
+				y = 0;
+				requestResize();
 			}
 		}
 
@@ -468,9 +924,9 @@ public class ViewCommon extends Canvas implements Runnable {
 			zone = b;
 		}
 		if (zone == touchHoldPos) {
-			if (zone >= 1 && zone <= 3 && !resizing) {
+			if (zone >= 1 && zone <= 3) {
 				zoom = zone;
-				bIApp.midlet.start(bIApp.RUN_ZOOM_VIEW);
+				requestResize();
 			} else if (zone == 7) {
 				keyPressed(-7);
 			}
@@ -566,6 +1022,12 @@ public class ViewCommon extends Canvas implements Runnable {
 		g.drawString(ft, px, 25 - f.getHeight() / 2, Graphics.TOP | Graphics.HCENTER);
 	}
 
+	protected final void paintPlaceholder(Graphics g) {
+		Image img = placeholder;
+		if (img == null || error) return;
+		g.drawImage(img, (getWidth() - img.getWidth()) / 2, (getHeight() - img.getHeight()) / 2, 0);
+	}
+
 	protected final void paintNullImg(Graphics g, Font f) {
 		int w = getWidth(), h = getHeight();
 		int fh = f.getHeight();
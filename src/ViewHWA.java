@@ -2,8 +2,6 @@
  * Copyright (c) 2021 Fyodor Ryzhov
  * Copyright (c) 2024 Arman Jussupgaliyev
  */
-import java.util.Vector;
-
 import javax.microedition.lcdui.*;
 import javax.microedition.m3g.*;
 
@@ -25,23 +23,16 @@ public class ViewHWA extends ViewCommon {
 	public ViewHWA() {
 		super(true);
 
-		// material
-		mat = new Material();
-		mat.setColor(Material.DIFFUSE, 0xFFFFFFFF); // white
-		mat.setColor(Material.SPECULAR, 0xFFFFFFFF); // white
-		mat.setShininess(128f);
-		mat.setVertexColorTrackingEnable(true);
-
 		// compositing
 		cmp = new CompositingMode();
 		cmp.setAlphaThreshold(0.0f);
-		cmp.setBlending(CompositingMode.ALPHA);
+		cmp.setBlending(CompositingMode.REPLACE); // tiles are opaque
 
 		// pol mode
 		pm = new PolygonMode();
 		pm.setWinding(PolygonMode.WINDING_CW);
 		pm.setCulling(PolygonMode.CULL_NONE);
-		pm.setShading(PolygonMode.SHADE_SMOOTH);
+		pm.setShading(PolygonMode.SHADE_FLAT);
 
 		// strip
 		ind = new TriangleStripArray(0, new int[] { 4 });
@@ -59,33 +50,66 @@ public class ViewHWA extends ViewCommon {
 		vb.setTexCoords(0, texArray, 1.0f, null);
 		vb.setDefaultColor(-1);
 		
-		// light
-		li = new Light();
-		li.setColor(0xffffff); // white light
-		li.setIntensity(1f);
-		li.setMode(Light.AMBIENT);
+		// camera, updated for each frame
+		cam = new Camera();
+		camTransform = new Transform();
 		
 		// bg
 		bg = new Background();
 		bg.setColorClearEnable(true);
 		bg.setDepthClearEnable(false);
+		
+		// texel is counted as 4 bytes
+		tileBudget = Math.max(4, vramBudget() / (tileSize * tileSize * 4));
 	}
 
 	protected VertexBuffer vb;
-	protected Material mat;
 	protected CompositingMode cmp;
 	protected PolygonMode pm;
 	protected TriangleStripArray ind;
-	protected Light li;
+	protected Camera cam;
+	protected Transform camTransform;
 	protected Background bg;
 
+	// tiles of all levels by row, null until they become visible
 	Object[][] p = null;
 	int iw, ih;
 
-	public static final short tileSize = 512;
+	// set from calibration before view is created
+	static short tileSize = 512;
+	
+	// decoded image, tiles are cut from it on demand
+	private Image src;
+	// level n has image scaled by 1 / 2^n, last one fits in a single tile
+	private int levels;
+	private int[] levelBase;
+	private int[] levelCols;
+	private int[] levelRows;
+	private int[] levelW;
+	private int[] levelH;
+	// image height covered by camera
+	private float viewH;
+	// last frame each tile was rendered in
+	private int[] tileFrame;
+	private int frame;
+	private int loaded;
+	// number of tiles kept in VRAM, visible ones are never dropped
+	private int tileBudget;
+	
+	// tiles are built in background, M3G objects are only touched under this lock
+	private final Object buildLock = new Object();
+	// tiles needed by last frame
+	private int wantLevel, wantX0, wantX1, wantY0, wantY1;
+	// tile pixels are prepared here, Image2D copies them
+	private Image scratch;
+	private int[] strip;
 
 	protected void reset() {
-		p = null;
+		synchronized (buildLock) {
+			p = null;
+			src = null;
+			buildLock.notify();
+		}
 	}
 
 	protected void prepare() throws InterruptedException {
@@ -95,18 +119,39 @@ public class ViewHWA extends ViewCommon {
 		d = null;
 		ih = i.getHeight();
 		iw = i.getWidth();
-		Vector v = new Vector();
-		for (int ix = 0; ix < i.getWidth() + tileSize - 1; ix += tileSize) {
-			for (int iy = 0; iy < i.getHeight() + tileSize - 1; iy += tileSize) {
-				v.addElement(getTile(i, ix, iy));
-			}
+		int n = 1;
+		int max = Math.max(iw, ih);
+		// rounded up like level sizes below, so last level is a single tile
+		while (((max + (1 << (n - 1)) - 1) >> (n - 1)) > tileSize) n++;
+		levels = n;
+		levelBase = new int[n];
+		levelCols = new int[n];
+		levelRows = new int[n];
+		levelW = new int[n];
+		levelH = new int[n];
+		int count = 0;
+		for (int l = 0; l < n; l++) {
+			int w = levelW[l] = Math.max(1, (iw + (1 << l) - 1) >> l);
+			int h = levelH[l] = Math.max(1, (ih + (1 << l) - 1) >> l);
+			levelBase[l] = count;
+			levelCols[l] = (w + tileSize - 1) / tileSize;
+			levelRows[l] = (h + tileSize - 1) / tileSize;
+			count += levelCols[l] * levelRows[l];
 		}
-		Object[][] tmp = new Object[v.size()][];
-		v.copyInto(tmp);
-		v = null;
-		p = tmp;
+		tileFrame = new int[count];
+		loaded = 0;
+		src = i;
 		x = iw / 2;
 		y = ih / 2;
+		// whole image until first frame tells what is visible
+		wantLevel = n - 1;
+		wantX0 = wantY0 = wantX1 = wantY1 = 0;
+		final Object[][] tiles = p = new Object[count][];
+		new Thread() {
+			public void run() {
+				buildTiles(tiles);
+			}
+		}.start();
 	}
 
 	protected void resize(int size) {
@@ -131,14 +176,18 @@ public class ViewHWA extends ViewCommon {
 
 			// bg fill
 
-			if (p == null) {
+			Object[][] p = this.p;
+			// thumbnail is shown until first tile is built
+			if (p == null || p[p.length - 1] == null) {
 				g.setGrayScale(0);
 				g.fillRect(0, 0, getWidth(), getHeight());
+				paintPlaceholder(g);
 				paintNullImg(g, f);
 				g.setColor(0, 0, 255);
 				g.fillRect(0, 0, getWidth(), 4);
 				g.drawString(iw + "x" + ih, getWidth() / 2, 4, Graphics.TOP | Graphics.HCENTER);
 			} else {
+				placeholder = null;
 				limitOffset();
 				final Graphics3D g3 = Graphics3D.getInstance();
 				g3.bindTarget(g, false, Graphics3D.ANTIALIAS);
@@ -147,11 +196,8 @@ public class ViewHWA extends ViewCommon {
 
 					setupM3G(g3);
 					
-					if (p != null) {
-						for (int i = 0; i < p.length; i++) {
-							if (p[i] == null) break;
-							g3.render((Node) p[i][0], (Transform) p[i][1]);
-						}
+					synchronized (buildLock) {
+						renderTiles(g3, p);
 					}
 				} catch (Throwable t) {
 					t.printStackTrace();
@@ -185,47 +231,206 @@ public class ViewHWA extends ViewCommon {
 			y = ih;
 	}
 
+	// no lights, textures are drawn unlit
 	protected void setupM3G(Graphics3D g3d) {
-		Camera cam = new Camera();
-		cam.setParallel(Math.max(iw, ih) / zoom, getWidth() / (float) getHeight(), 0.1f, 900f);
-		Transform t = new Transform();
+		viewH = Math.max(iw, ih) / zoom;
+		cam.setParallel(viewH, getWidth() / (float) getHeight(), 0.1f, 900f);
+		Transform t = camTransform;
+		t.setIdentity();
 		t.postTranslate(x, y, 100);
 		t.postRotate(180, 0, 0, -1);
 		t.postScale(-1, 1, 1);
 
 		g3d.setCamera(cam, t);
-		g3d.resetLights();
-		g3d.addLight(li, t);
 	}
 
 	
 
-	private Object[] getTile(Image i, int tx, int ty) {
-		// cropping
-		Image part = Image.createImage(tileSize, tileSize);
-		Graphics pg = part.getGraphics();
-		pg.setColor(0);
-		pg.fillRect(0, 0, tileSize, tileSize);
-		pg.drawRegion(i, tx, ty, Math.min(tileSize, i.getWidth() - tx), Math.min(tileSize, i.getHeight() - ty), 0, 0,
-				0, 0);
-		
-		System.gc();
+	// Renders tiles of level closest to one texel per pixel that intersect camera view,
+	// ones not built yet are covered by coarser levels,
+	// then drops tiles that were off screen longest while over budget
+	private void renderTiles(Graphics3D g3, Object[][] p) {
+		float vh = viewH;
+		float vw = vh * getWidth() / getHeight();
+		int l = 0;
+		// image pixels per screen pixel
+		float density = vh / getHeight();
+		while (l < levels - 1 && (2 << l) <= density) l++;
+		// tile size in image pixels
+		float tw = tileSize * (float) iw / levelW[l];
+		float th = tileSize * (float) ih / levelH[l];
+		int cols = levelCols[l];
+		int tx0 = Math.max(0, (int) ((x - vw / 2) / tw));
+		int tx1 = Math.min(cols - 1, (int) ((x + vw / 2) / tw));
+		int ty0 = Math.max(0, (int) ((y - vh / 2) / th));
+		int ty1 = Math.min(levelRows[l] - 1, (int) ((y + vh / 2) / th));
+		int f = ++frame;
+		boolean missing = false;
+		// no depth buffer, finer tiles are drawn over fallbacks
+		for (int ty = ty0; ty <= ty1; ty++) {
+			for (int tx = tx0; tx <= tx1; tx++) {
+				if (p[levelBase[l] + ty * cols + tx] != null) continue;
+				missing = true;
+				for (int c = l + 1; c < levels; c++) {
+					float ctw = tileSize * (float) iw / levelW[c];
+					float cth = tileSize * (float) ih / levelH[c];
+					int ci = levelBase[c]
+							+ Math.min(levelRows[c] - 1, (int) ((ty + 0.5f) * th / cth)) * levelCols[c]
+							+ Math.min(levelCols[c] - 1, (int) ((tx + 0.5f) * tw / ctw));
+					if (p[ci] != null) {
+						if (tileFrame[ci] != f) {
+							tileFrame[ci] = f;
+							g3.render((Node) p[ci][0], (Transform) p[ci][1]);
+						}
+						break;
+					}
+				}
+			}
+		}
+		for (int ty = ty0; ty <= ty1; ty++) {
+			for (int tx = tx0; tx <= tx1; tx++) {
+				int i = levelBase[l] + ty * cols + tx;
+				if (p[i] == null) continue;
+				tileFrame[i] = f;
+				g3.render((Node) p[i][0], (Transform) p[i][1]);
+			}
+		}
+		// single tile of last level is kept as fallback
+		int last = p.length - 1;
+		while (loaded > tileBudget) {
+			int lru = -1;
+			for (int i = 0; i < last; i++) {
+				if (p[i] != null && tileFrame[i] != f && (lru == -1 || tileFrame[i] < tileFrame[lru])) lru = i;
+			}
+			if (lru == -1) break;
+			p[lru] = null;
+			loaded--;
+		}
+		wantLevel = l;
+		wantX0 = tx0;
+		wantX1 = tx1;
+		wantY0 = ty0;
+		wantY1 = ty1;
+		if (missing) buildLock.notify();
+	}
+	
+	// Builds tiles wanted by last frame one by one, nearest to view centre first,
+	// showing each as soon as it is ready
+	private void buildTiles(Object[][] p) {
+		while (true) {
+			int best = -1, l = 0, bx = 0, by = 0;
+			Image src;
+			synchronized (buildLock) {
+				if (this.p != p) return;
+				src = this.src;
+				if (p[p.length - 1] == null) {
+					// whole image in one tile, everything else falls back to it
+					best = p.length - 1;
+					l = levels - 1;
+				} else {
+					l = wantLevel;
+					float tw = tileSize * (float) iw / levelW[l];
+					float th = tileSize * (float) ih / levelH[l];
+					float min = 0;
+					for (int ty = wantY0; ty <= wantY1; ty++) {
+						for (int tx = wantX0; tx <= wantX1; tx++) {
+							int i = levelBase[l] + ty * levelCols[l] + tx;
+							if (p[i] != null) continue;
+							float dx = (tx + 0.5f) * tw - x, dy = (ty + 0.5f) * th - y;
+							float d = dx * dx + dy * dy;
+							if (best == -1 || d < min) {
+								best = i;
+								min = d;
+								bx = tx;
+								by = ty;
+							}
+						}
+					}
+				}
+				if (best == -1 || src == null) {
+					try {
+						buildLock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+					continue;
+				}
+			}
+			// pixels are prepared while frames keep being drawn
+			fillTile(src, l, bx, by);
+			synchronized (buildLock) {
+				if (this.p != p) return;
+				if (p[best] == null) {
+					p[best] = getTile(l, bx, by);
+					tileFrame[best] = frame;
+					loaded++;
+				}
+			}
+			repaint();
+		}
+	}
+	
+	// Half of GPU memory reported by Nokia devices, 8 MB if unknown
+	static int vramBudget() {
+		int total = 0;
+		try {
+			String s = System.getProperty("com.nokia.gpu.memory.total");
+			if (s != null) total = Integer.parseInt(s.trim());
+		} catch (Exception e) {}
+		if (total <= 0) return 8 << 20;
+		// reported in kilobytes on some firmwares
+		if (total < 1 << 20) total <<= 10;
+		return total / 2;
+	}
+
+	// Draws tile of given level into scratch image
+	private void fillTile(Image i, int l, int tx, int ty) {
+		int lw = levelW[l], lh = levelH[l];
+		int x = tx * tileSize, y = ty * tileSize;
+		int w = Math.min(tileSize, lw - x), h = Math.min(tileSize, lh - y);
+		if (scratch == null) scratch = Image.createImage(tileSize, tileSize);
+		Graphics pg = scratch.getGraphics();
+		// drawRegion blends transparent pixels over previous tile, drawRGB below is opaque
+		if (l == 0 || w < tileSize || h < tileSize) {
+			pg.setColor(0);
+			pg.fillRect(0, 0, tileSize, tileSize);
+		}
+		if (l == 0) {
+			pg.drawRegion(i, x, y, w, h, 0, 0, 0, 0);
+			return;
+		}
+		// area averaged, texture filtering alone would skip texels
+		ImageScaler sc = new ImageScaler(i, lw, lh, x, y, w, h);
+		int[] buf = strip;
+		if (buf == null) buf = strip = new int[tileSize * 16];
+		int rows = buf.length / w;
+		int n;
+		for (int dy = 0; (n = sc.next(buf, 0, rows)) > 0; dy += n) {
+			pg.drawRGB(buf, 0, w, 0, dy, w, n, false);
+		}
+	}
+
+	// Makes mesh from scratch image
+	private Object[] getTile(int l, int tx, int ty) {
+		int lw = levelW[l], lh = levelH[l];
+		int x = tx * tileSize, y = ty * tileSize;
 
 		// appearance
-		Image2D image2D = new Image2D(Image2D.RGB, part);
+		Image2D image2D = new Image2D(Image2D.RGB, scratch);
 		Texture2D tex = new Texture2D(image2D);
 		tex.setFiltering(Texture2D.FILTER_LINEAR, Texture2D.FILTER_LINEAR);
 		tex.setWrapping(Texture2D.WRAP_CLAMP, Texture2D.WRAP_CLAMP);
-		tex.setBlending(Texture2D.FUNC_MODULATE);
+		tex.setBlending(Texture2D.FUNC_REPLACE);
 		Appearance ap = new Appearance();
 		ap.setTexture(0, tex);
-		ap.setMaterial(mat);
 		ap.setCompositingMode(cmp);
 		ap.setPolygonMode(pm);
 
 		// transform
+		float sx = (float) iw / lw, sy = (float) ih / lh;
 		Transform t = new Transform();
-		t.postTranslate(tx, ty, 0);
+		t.postTranslate(x * sx, y * sy, 0);
+		t.postScale(sx, sy, 1);
 		
 		return new Object[] {new Mesh(vb, ind, ap), t};
 	}
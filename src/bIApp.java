@@ -35,6 +35,7 @@ import javax.microedition.lcdui.Display;
 import javax.microedition.lcdui.Displayable;
 import javax.microedition.lcdui.Font;
 import javax.microedition.lcdui.Form;
+import javax.microedition.lcdui.Graphics;
 import javax.microedition.lcdui.Image;
 import javax.microedition.lcdui.ImageItem;
 import javax.microedition.lcdui.Item;
@@ -45,31 +46,23 @@ import javax.microedition.lcdui.Ticker;
 import javax.microedition.midlet.MIDlet;
 import javax.microedition.rms.RecordStore;
 
-import cc.nnproject.json.AbstractJSON;
 import cc.nnproject.json.JSON;
-import cc.nnproject.json.JSONArray;
+import cc.nnproject.json.JSONBinary;
 import cc.nnproject.json.JSONObject;
+import cc.nnproject.json.JSONStream;
 
 public class bIApp extends MIDlet implements Runnable, CommandListener, ItemCommandListener {
 	
 	private static final int RUN_POSTS = 1;
 	private static final int RUN_POST = 2;
 	private static final int RUN_THUMBNAILS = 3;
-	static final int RUN_ZOOM_VIEW = 4;
+	private static final int RUN_CALIBRATE = 4;
 	
-	private static final int API_DANBOORU = 0;
-	private static final int API_GELBOORU = 1;
-	private static final int API_SAFEBOORU = 2;
-	private static final int API_YANDERE = 3;
-	private static final int API_E621 = 4;
-	
-	private static final String[] API_URLS = {
-			"https://danbooru.donmai.us/",
-			"https://gelbooru.com/",
-			"https://safebooru.org/",
-			"https://yande.re/",
-			"https://e621.net/",
-	};
+	static final int API_DANBOORU = 0;
+	static final int API_GELBOORU = 1;
+	static final int API_SAFEBOORU = 2;
+	static final int API_YANDERE = 3;
+	static final int API_E621 = 4;
 	
 	private static final String[] API_NAMES = {
 			"Danbooru",
@@ -79,6 +72,10 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			"e621",
 	};
 	
+	private static final String[] LIMITS = {
+			"5", "10", "15", "20", "30", "40", "50"
+	};
+	
 	private static final String SETTINGS_RMS = "boorusets";
 
 	private static final Font largefont = Font.getFont(0, 0, Font.SIZE_LARGE);
@@ -123,29 +120,44 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 	private static int run;
 	private static boolean running;
 	
-	private static int limit = 10;
+	private static int limit = 20;
 	private static int page = 1;
 	private static String query;
+	// last post id of loaded page, for continuing to next one
+	private static String cursor;
+	private static int cursorPage;
 	
 	private static Object thumbLoadLock = new Object();
 	private static Vector thumbsToLoad = new Vector();
-	private static Hashtable previewUrlsCache = new Hashtable();
+	// ImageItem -> Post
 	private static Hashtable posts = new Hashtable();
 	
+	// ints per scaling strip
+	private static final int STRIP_SIZE = 8192;
+	private static Object stripLock = new Object();
+	private static int[] strip;
+	
 	// settings
 	private static String proxyUrl = "http://nnp.nnchan.ru/hproxy.php?";
 	private static int apiMode = API_DANBOORU;
+	private static BooruBackend backend;
 	private static int viewMode = 1;
 	static boolean onlineResize = true;
-	static boolean keepBitmap;
 //	private static int thumbSize;
 	private static boolean useProxy = true;
+	// results of calibration, run once on first launch
+	private static boolean calibrated;
+	private static boolean autoHwa;
+	private static int tileSize = 512;
+	private static boolean smoothScale = true;
 	
 	private static Image postPlaceholderImg = null;
 	
 	private static ImageItem postItem;
+	// item with thumbnail on post form
+	private static ImageItem postThumbItem;
 	private static String postId;
-	private static JSONObject post;
+	static Post post;
 	
 	private static String version;
 
@@ -179,18 +191,27 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		
 		try {
 			RecordStore r = RecordStore.openRecordStore(SETTINGS_RMS, false);
-			JSONObject j = JSON.getObject(new String(r.getRecord(1), "UTF-8"));
+			byte[] b = r.getRecord(1);
 			r.closeRecordStore();
+			// settings saved by older versions are json text
+			JSONObject j = JSONBinary.isBinary(b, 0, b.length) ? (JSONObject) JSONBinary.decode(b)
+					: JSON.getObject(new String(b, "UTF-8"));
 			
 			proxyUrl = j.getString("proxy", proxyUrl);
 			limit = j.getInt("limit", limit);
 			apiMode = j.getInt("apiMode", apiMode);
 //			thumbSize = j.getInt("thumbSize", thumbSize);
 			viewMode = j.getInt("viewMode", viewMode);
-			keepBitmap = j.getBoolean("keepBitmap", keepBitmap);
 			onlineResize = j.getBoolean("onlineResize", onlineResize);
 			useProxy = j.getBoolean("useProxy", useProxy);
+			calibrated = j.getBoolean("calibrated", calibrated);
+			autoHwa = j.getBoolean("autoHwa", autoHwa);
+			tileSize = j.getInt("tileSize", tileSize);
+			smoothScale = j.getBoolean("smoothScale", smoothScale);
 		} catch (Exception e) {}
+		backend = BooruBackend.get(apiMode);
+		ViewHWA.tileSize = (short) tileSize;
+		ImageScaler.smooth = smoothScale;
 		
 		Form f = new Form("ы");
 		f.addCommand(exitCmd);
@@ -223,8 +244,22 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		s.setItemCommandListener(this);
 		f.append(s);
 		
-		display.setCurrent(mainForm = f);
-		
+		mainForm = f;
+		if (calibrated) {
+			display.setCurrent(f);
+			startLoaders();
+			return;
+		}
+		// measured while nothing else runs, main form is shown after it
+		f = new Form(f.getTitle());
+		f.addCommand(exitCmd);
+		f.setCommandListener(this);
+		f.setTicker(new Ticker("Calibrating..."));
+		display.setCurrent(f);
+		start(RUN_CALIBRATE);
+	}
+	
+	private void startLoaders() {
 		// start thumbnails loader thread
 		start(RUN_THUMBNAILS);
 		
@@ -239,7 +274,6 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		if (d == postsForm && c == backCmd) {
 			display(mainForm);
 			posts.clear();
-			previewUrlsCache.clear();
 			postsForm = null;
 			return;
 		}
@@ -247,6 +281,7 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			display(postsForm);
 			post = null;
 			postForm = null;
+			postThumbItem = null;
 			return;
 		}
 		if (c == nextPageCmd || c == prevPageCmd) {
@@ -267,17 +302,17 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			try {
 				System.gc();
 				if (post == null) return;
-				String url = getFile(post, c == downloadCmd);
+				String url = backend.getFile(post, c == downloadCmd);
 				if (url == null)
 					return;
 				if (c != downloadCmd && (url.endsWith("jpg") || url.endsWith("jpeg") || url.endsWith("png") || url.endsWith("webm"))) {
-					if (view != null) {
-						view.reload();
-					} else {
+					if (view == null) {
 						if (bIApp.viewMode == 1) {
 							view = new ViewCommon(false);
 						} else if (bIApp.viewMode == 2) {
 							view = new ViewHWA();
+						} else if (calibrated) {
+							view = autoHwa ? new ViewHWA() : new ViewCommon(false);
 						} else {
 							String vram = System.getProperty("com.nokia.gpu.memory.total");
 							if (vram != null && !vram.equals("0")) {
@@ -287,6 +322,7 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 							}
 						}
 					}
+					view.reload();
 					display(view);
 					return;
 				}
@@ -312,10 +348,13 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			apiChoice.setSelectedIndex(apiMode, true);
 			f.append(apiChoice);
 			
-			limitChoice = new ChoiceGroup("Posts per page", ChoiceGroup.POPUP, new String[] {
-					"5", "10", "15", "20", "25", "30"
-			}, null);
-			limitChoice.setSelectedIndex(Math.max(0, limit / 5 - 1), true);
+			limitChoice = new ChoiceGroup("Posts per page", ChoiceGroup.POPUP, LIMITS, null);
+			for (int i = 0; i < LIMITS.length; i++) {
+				if (Integer.parseInt(LIMITS[i]) >= limit) {
+					limitChoice.setSelectedIndex(i, true);
+					break;
+				}
+			}
 			f.append(limitChoice);
 			
 			viewChoice = new ChoiceGroup("View mode", ChoiceGroup.POPUP, new String[] {
@@ -347,27 +386,12 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			viewMode = viewChoice.getSelectedIndex();
 			onlineResize = onlineChoice.isSelected(0);
 			useProxy = proxyChoice.isSelected(0);
+			backend = BooruBackend.get(apiMode);
+			cursorPage = 0;
 			
 			mainLabel.setText(API_NAMES[apiMode]);
 			
-			try {
-				RecordStore.deleteRecordStore(SETTINGS_RMS);
-			} catch (Exception e) {}
-			try {
-				JSONObject j = new JSONObject();
-				j.put("proxy", proxyUrl);
-				j.put("apiMode", apiMode);
-				j.put("limit", limit);
-				j.put("viewMode", viewMode);
-				j.put("keepBitmap", keepBitmap);
-				j.put("onlineResize", onlineResize);
-				j.put("useProxy", useProxy);
-				
-				byte[] b = j.toString().getBytes("UTF-8");
-				RecordStore r = RecordStore.openRecordStore(SETTINGS_RMS, true);
-				r.addRecord(b, 0, b.length);
-				r.closeRecordStore();
-			} catch (Exception e) {}
+			saveSettings();
 			display(mainForm);
 			return;
 		}
@@ -442,6 +466,7 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			display(postsForm = f);
 			query = c == searchCmd ? searchField.getString().trim() : null;
 			page = 1;
+			cursorPage = 0;
 			start(RUN_POSTS);
 			return;
 		}
@@ -471,12 +496,11 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			run = bIApp.run;
 			notify();
 		}
-		if (running = run != RUN_THUMBNAILS)
+		if (running = run != RUN_THUMBNAILS && run != RUN_CALIBRATE)
 			System.gc();
 		switch (run) {
 		case RUN_POSTS: {
 			Form f = postsForm;
-			previewUrlsCache.clear();
 			posts.clear();
 			
 			try {
@@ -490,46 +514,36 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 				
 				addPageButtons(f);
 				
-				sb.setLength(0);
-				switch (apiMode) {
-				case API_SAFEBOORU:
-				case API_GELBOORU:
-					sb.append("index.php?page=dapi&s=post&q=index&json=1");
-					
-					if (page > 0)
-						sb.append("&pid=").append(page);
-					break;
-				case API_YANDERE:
-					sb.append("post.json?");
-					
-					if (page > 0)
-						sb.append("&page=").append(page);
-					break;
-				default:
-					sb.append("posts.json?");
-					
-					if (page > 0)
-						sb.append("&page=").append(page);
+				BooruBackend b = backend;
+				int page = bIApp.page;
+				int limit = Math.min(bIApp.limit, b.maxLimit);
+				
+				// continue from the last post of previous page, that's cheaper than offset
+				String cursor = null;
+				if (b.has(BooruBackend.CAP_CURSOR) && page == cursorPage
+						&& (query == null || query.indexOf("order:") == -1)) {
+					cursor = bIApp.cursor;
 				}
-				sb.append("&limit=").append(limit);
-				if (query != null) {
-					sb.append("&tags=").append(url(query));
+				// if post can be requested separately, don't load everything in list
+				String fields = null;
+				if (b.has(BooruBackend.CAP_FIELDS) && b.has(BooruBackend.CAP_POST_BY_ID)) {
+					fields = b.listFields();
 				}
 				
-				AbstractJSON res = api(sb.toString());
-				JSONArray posts = res instanceof JSONArray ? (JSONArray) res :
-					((JSONObject) res).has("post") ? ((JSONObject) res).getArray("post") :
-						((JSONObject) res).getArray("posts");
+				sb.setLength(0);
+				b.appendPostsUrl(sb, query, page, cursor, limit, fields);
+				
+				Vector posts = (Vector) api(sb.toString(), true);
 				
 				if (postsForm != f) break;
 				
 				ImageItem item;
 				
 				int l = posts.size();
-				String url;
+				String id = null;
 				for (int i = 0; i < l; i++) {
-					JSONObject p = posts.getObject(i);
-					String id = p.getString("id");
+					Post p = (Post) posts.elementAt(i);
+					id = p.id;
 					
 					item = new ImageItem("",
 							postPlaceholderImg,
@@ -540,12 +554,14 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 					item.setItemCommandListener(this);
 					f.append(item);
 					
+					p.partial = fields != null;
 					bIApp.posts.put(item, p);
-					if ((url = getPreviewUrl(p)) != null) {
-						scheduleThumb(item, url);
-						previewUrlsCache.put(id, url);
+					if (p.preview != null) {
+						scheduleThumb(item, p.preview);
 					}
 				}
+				bIApp.cursor = id;
+				cursorPage = page + 1;
 				
 				addPageButtons(f);
 			} catch (NullPointerException e) {
@@ -561,12 +577,13 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		case RUN_POST: {
 			String id = postId;
 			Image thumb = postItem != null ? postItem.getImage() : null;
-			JSONObject post = postItem != null ? (JSONObject) posts.get(postItem) : null;
+			Post post = postItem != null ? (Post) posts.get(postItem) : null;
 			postItem = null;
 			
 			Form f = postForm;
 			
 			ImageItem item = new ImageItem("", thumb, Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER, id, Item.BUTTON);
+			postThumbItem = item;
 			
 			item.addCommand(showPostCmd);
 			item.addCommand(downloadCmd);
@@ -574,102 +591,39 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			item.setItemCommandListener(this);
 			f.append(item);
 			
-			StringItem s;
-			
 			try {
-				if (post == null) {
+				BooruBackend b = backend;
+				// list has urls and size, so post can be viewed while rest of it is loaded
+				boolean shown = post != null && post.file != null;
+				if (shown) {
+					bIApp.post = post;
+					appendSize(f, post);
+				}
+				if (post == null || post.partial) {
 					StringBuffer sb = new StringBuffer();
-					switch (apiMode) {
-					case API_SAFEBOORU:
-					case API_GELBOORU:
-						sb.append("index.php?page=dapi&s=post&q=index&json=1&id=").append(id);
-						break;
-					case API_YANDERE:
-						throw new Exception("not supported");
-					default:
-						sb.append("posts/").append(id).append(".json");
-					}
-					post = (JSONObject) api(sb.toString());
-					if (post.has("post")) {
-						Object t = post.get("post");
-						if (t instanceof JSONArray) {
-							post = ((JSONArray) t).getObject(0);
-						} else {
-							post = (JSONObject) t;
-						}
-					}
+					b.appendPostUrl(sb, id, b.has(BooruBackend.CAP_FIELDS) ? b.postFields() : null);
+					post = (Post) api(sb.toString(), false);
 				}
 				
 				if (postForm != f) break;
 				
 				bIApp.post = post;
-				if (thumb == null) {
-					String url;
-					if ((url = getPreviewUrl(post)) != null)
-						scheduleThumb(item, url);
+				if (thumb == null && post.preview != null) {
+					scheduleThumb(item, post.preview);
 				}
 				
-				switch (apiMode) {
-				case API_DANBOORU:
-					String t;
-					if ((t = post.getString("tag_string_artist", null)) != null && t.length() > 0) {
-						s = new StringItem("Artist", t);
-						s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-						s.setFont(smallfont);
-						f.append(s);
-					}
-					
-					if ((t = post.getString("tag_string_copyright", null)) != null && t.length() > 0) {
-						s = new StringItem("Copyright", t);
-						s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-						s.setFont(smallfont);
-						f.append(s);
-					}
-					
-					if ((t = post.getString("tag_string_character", null)) != null && t.length() > 0) {
-						s = new StringItem("Character", t);
-						s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-						s.setFont(smallfont);
-						f.append(s);
-					}
-					
-					if ((t = post.getString("tag_string_general", null)) != null && t.length() > 0) {
-						s = new StringItem("General", t);
-						s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-						s.setFont(smallfont);
-						f.append(s);
-					}
-					
-					if ((t = post.getString("tag_string_meta", null)) != null && t.length() > 0) {
-						s = new StringItem("Meta", t);
-						s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
+				if (!shown) appendSize(f, post);
+				
+				StringItem s;
+				String[] tags = post.tags;
+				if (tags != null) {
+					for (int i = 0; i < tags.length; i++) {
+						if (tags[i] == null) continue;
+						s = new StringItem(Post.TAG_LABELS[i], tags[i]);
+						s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
 						s.setFont(smallfont);
 						f.append(s);
 					}
-					break;
-				case API_E621:
-					// TODO
-					break;
-				case API_GELBOORU:
-					s = new StringItem("Tags", post.getString("tags", ""));
-					s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-					s.setFont(smallfont);
-					f.append(s);
-					break;
-				case API_SAFEBOORU:
-					s = new StringItem("Tags", post.getString("tags", ""));
-					s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-					s.setFont(smallfont);
-					f.append(s);
-					break;
-				case API_YANDERE:
-					s = new StringItem("Tags", post.getString("tags", ""));
-					s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
-					s.setFont(smallfont);
-					f.append(s);
-					break;
-				default:
-					f.append(post.toString());
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -722,15 +676,64 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 			}
 			return;
 		}
-		case RUN_ZOOM_VIEW: {
-			if (view == null) break;
-			view.resize((int) view.zoom);
-			view.repaint();
-			break;
+		case RUN_CALIBRATE: {
+			try {
+				Calibration.run();
+				autoHwa = Calibration.hwa;
+				tileSize = Calibration.tileSize;
+				smoothScale = Calibration.smooth;
+			} catch (Throwable e) {
+				// keep defaults
+				e.printStackTrace();
+			}
+			calibrated = true;
+			ViewHWA.tileSize = (short) tileSize;
+			ImageScaler.smooth = smoothScale;
+			saveSettings();
+			display.setCurrent(mainForm);
+			startLoaders();
+			return;
 		}
 		}
 		running = false;
 	}
+	
+	private static void appendSize(Form f, Post post) {
+		if (post.width <= 0 || post.height <= 0) return;
+		StringBuffer sb = new StringBuffer();
+		sb.append(post.width).append('x').append(post.height);
+		if (post.size > 0) {
+			sb.append(", ").append(post.size / 1024).append(" KB");
+		}
+		StringItem s = new StringItem("Size", sb.toString());
+		s.setLayout(Item.LAYOUT_LEFT | Item.LAYOUT_NEWLINE_AFTER);
+		s.setFont(smallfont);
+		f.append(s);
+	}
+	
+	private static void saveSettings() {
+		try {
+			RecordStore.deleteRecordStore(SETTINGS_RMS);
+		} catch (Exception e) {}
+		try {
+			JSONObject j = new JSONObject();
+			j.put("proxy", proxyUrl);
+			j.put("apiMode", apiMode);
+			j.put("limit", limit);
+			j.put("viewMode", viewMode);
+			j.put("onlineResize", onlineResize);
+			j.put("useProxy", useProxy);
+			j.put("calibrated", calibrated);
+			j.put("autoHwa", autoHwa);
+			j.put("tileSize", tileSize);
+			j.put("smoothScale", smoothScale);
+			
+			byte[] b = JSONBinary.encode(j);
+			RecordStore r = RecordStore.openRecordStore(SETTINGS_RMS, true);
+			r.addRecord(b, 0, b.length);
+			r.closeRecordStore();
+		} catch (Exception e) {}
+	}
 
 	void start(int i) {
 		try {
@@ -742,37 +745,6 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		} catch (Exception e) {}
 	}
 
-	private String getPreviewUrl(JSONObject p) {
-		if (apiMode == API_DANBOORU) {
-//			return p.getObject("media_asset").getArray("variants").getObject(0).getString("url");
-			return p.getString("preview_file_url", null);
-		}
-		if (apiMode == API_GELBOORU || apiMode == API_YANDERE) {
-			return p.getString("preview_url");
-		}
-		if (apiMode == API_E621) {
-			return p.getObject("preview").getString("url");
-		}
-		if (apiMode == API_SAFEBOORU) {
-			return API_URLS[apiMode] + "thumbnails/" + p.getString("directory") + "/thumbnail_" + p.getString("image") + '?' + p.getString("id");
-		}
-		return null;
-	}
-
-	private static String getFile(JSONObject p, boolean full) {
-		if (apiMode == API_DANBOORU  || apiMode == API_GELBOORU || apiMode == API_YANDERE) {
-			if (p.has("large_file_url"))
-				return p.getString("large_file_url");
-			if (p.has("sample_url") && !full)
-				return p.getString("sample_url");
-			return p.getString("file_url");
-		}
-		if (apiMode == API_E621) {
-			return p.getObject("file").getString("url");
-		}
-		return null;
-	}
-
 	private void addPageButtons(Form f) {
 		// TODO limit
 		StringItem s;
@@ -816,9 +788,22 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		}
 	}
 
+	// Thumbnail of opened post if it is loaded, null otherwise
+	static Image getPostThumb() {
+		ImageItem item = postThumbItem;
+		Image img = item != null ? item.getImage() : null;
+		return img == postPlaceholderImg ? null : img;
+	}
+
 	static byte[] getPostImage(String s) throws IOException {
 		if (s == null) s = "";
-		return get(proxyUrl(getFile(post, false).concat(s)));
+		return get(proxyUrl(backend.getFile(post, false).concat(s)));
+	}
+	
+	// Region of post image scaled to exactly tw x th, cropped by proxy
+	// proxy that doesn't know crop parameters returns whole image fitted to tw x th
+	static byte[] getPostTile(int tw, int th, int x, int y, int w, int h) throws IOException {
+		return getPostImage(";tw=" + tw + ";th=" + th + ";cx=" + x + ";cy=" + y + ";cw=" + w + ";ch=" + h);
 	}
 	
 	static void display(Alert a, Displayable d) {
@@ -829,6 +814,10 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		display.setCurrent(a, d);
 	}
 
+	static void callSerially(Runnable r) {
+		display.callSerially(r);
+	}
+	
 	static void display(Displayable d) {
 		if(d instanceof Alert) {
 			display.setCurrent((Alert) d, mainForm);
@@ -850,7 +839,8 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 					Item item = postsForm.get(i);
 					if (!(item instanceof ImageItem)) continue;
 					if (((ImageItem) item).getImage() != null) continue;
-					scheduleThumb((ImageItem) item, (String) previewUrlsCache.get(((ImageItem) item).getAltText()));
+					Post post = (Post) posts.get(item);
+					if (post != null) scheduleThumb((ImageItem) item, post.preview);
 				}
 			} catch (Exception e) {}
 		}
@@ -866,19 +856,21 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 	
 	// http
 	
-	private static AbstractJSON api(String url) throws IOException {
-		AbstractJSON res;
+	// returns Vector of posts if list is true, or single Post
+	private static Object api(String url, boolean list) throws IOException {
+		Object res;
 
 		HttpConnection hc = null;
 		InputStream in = null;
 		try {
-			hc = open(proxyUrl(API_URLS[apiMode].concat(url)));
+			hc = open(proxyUrl(backend.url.concat(url)));
 			hc.setRequestMethod("GET");
 			int c;
 			if ((c = hc.getResponseCode()) >= 400) {
 				throw new IOException("HTTP ".concat(Integer.toString(c)));
 			}
-			res = JSON.get(readUtf(in = hc.openInputStream(), (int) hc.getLength()));
+			JSONStream s = JSONStream.getStream(in = hc.openInputStream());
+			res = list ? (Object) backend.readPosts(s) : (Object) backend.readSinglePost(s);
 		} finally {
 			if (in != null) try {
 				in.close();
@@ -1017,99 +1009,51 @@ public class bIApp extends MIDlet implements Runnable, CommandListener, ItemComm
 		if (size_w == w && size_h == h)
 			return src_i;
 
-		int[] dst = new int[size_w * size_h];
-
-		resize_rgb_filtered(src_i, dst, w, h, size_w, size_h);
-
-		// not needed anymore
-		src_i = null;
-
-		return Image.createRGBImage(dst, size_w, size_h, true);
+		return scale(new ImageScaler(src_i, size_w, size_h));
 	}
 
-	private static final void resize_rgb_filtered(Image src_i, int[] dst, int w0, int h0, int w1, int h1) {
-		int[] buffer1 = new int[w0];
-		int[] buffer2 = new int[w0];
+	// Scales region of image as if it was scaled to full size
+	static Image resize(Image src_i, int full_w, int full_h, int x, int y, int size_w, int size_h) {
+		return scale(new ImageScaler(src_i, full_w, full_h, x, y, size_w, size_h));
+	}
 
-		// UNOPTIMIZED bilinear filtering:               
-		//         
-		// The pixel position is defined by y_a and y_b,
-		// which are 24.8 fixed point numbers
-		// 
-		// for bilinear interpolation, we use y_a1 <= y_a <= y_b1
-		// and x_a1 <= x_a <= x_b1, with y_d and x_d defining how long
-		// from x/y_b1 we are.
-		//
-		// since we are resizing one line at a time, we will at most 
-		// need two lines from the source image (y_a1 and y_b1).
-		// this will save us some memory but will make the algorithm 
-		// noticeably slower
+	// Scales region of JPEG as if it was scaled to full size, transforming only blocks under it
+	// Decoder must be started at scale chosen for full size
+	static Image resize(JPEGDecoder jpeg, int full_w, int full_h, int x, int y, int size_w, int size_h) {
+		return scale(new ImageScaler(jpeg, full_w, full_h, x, y, size_w, size_h));
+	}
 
-		for (int index1 = 0, y = 0; y < h1; y++) {
+	// Decodes JPEG at smallest DCT scale that still covers target size and scales rows as they come
+	static Image resize(JPEGDecoder jpeg, int size_w, int size_h) throws IOException {
+		jpeg.setScale(size_w, size_h);
+		jpeg.start();
+		return scale(new ImageScaler(jpeg, size_w, size_h));
+	}
 
-			final int y_a = ((y * h0) << 8) / h1;
-			final int y_a1 = y_a >> 8;
-			int y_d = y_a & 0xFF;
+	private static Image scale(ImageScaler scaler) {
+		int size_w = scaler.width;
+		int size_h = scaler.height;
+		// scaled rows go to mutable image through a strip buffer,
+		// so the whole picture never exists as int[]
+		Image dst = Image.createImage(size_w, size_h);
+		Graphics g = dst.getGraphics();
+		// transparent pixels are blended over viewer background
+		g.setGrayScale(0);
+		g.fillRect(0, 0, size_w, size_h);
 
-			int y_b1 = y_a1 + 1;
-			if (y_b1 >= h0) {
-				y_b1 = h0 - 1;
-				y_d = 0;
+		int rows = Math.max(1, STRIP_SIZE / size_w);
+		synchronized (stripLock) {
+			int[] buf = strip;
+			if (buf == null || buf.length < rows * size_w) {
+				strip = null;
+				strip = buf = new int[rows * size_w];
 			}
-
-			// get the two affected lines:
-			src_i.getRGB(buffer1, 0, w0, 0, y_a1, w0, 1);
-			if (y_d != 0)
-				src_i.getRGB(buffer2, 0, w0, 0, y_b1, w0, 1);
-
-			for (int x = 0; x < w1; x++) {
-				// get this and the next point
-				int x_a = ((x * w0) << 8) / w1;
-				int x_a1 = x_a >> 8;
-				int x_d = x_a & 0xFF;
-
-				int x_b1 = x_a1 + 1;
-				if (x_b1 >= w0) {
-					x_b1 = w0 - 1;
-					x_d = 0;
-				}
-
-				// interpolate in x
-				int c12, c34;
-				int c1 = buffer1[x_a1];
-				int c3 = buffer1[x_b1];
-
-				// interpolate in y:
-				if (y_d == 0) {
-					c12 = c1;
-					c34 = c3;
-				} else {
-					int c2 = buffer2[x_a1];
-					int c4 = buffer2[x_b1];
-
-					final int v1 = y_d & 0xFF;
-					final int a_c2_RB = c1 & 0x00FF00FF;
-					final int a_c2_AG_org = c1 & 0xFF00FF00;
-
-					final int b_c2_RB = c3 & 0x00FF00FF;
-					final int b_c2_AG_org = c3 & 0xFF00FF00;
-
-					c12 = (a_c2_AG_org + ((((c2 >>> 8) & 0x00FF00FF) - (a_c2_AG_org >>> 8)) * v1)) & 0xFF00FF00
-							| (a_c2_RB + ((((c2 & 0x00FF00FF) - a_c2_RB) * v1) >> 8)) & 0x00FF00FF;
-					c34 = (b_c2_AG_org + ((((c4 >>> 8) & 0x00FF00FF) - (b_c2_AG_org >>> 8)) * v1)) & 0xFF00FF00
-							| (b_c2_RB + ((((c4 & 0x00FF00FF) - b_c2_RB) * v1) >> 8)) & 0x00FF00FF;
-				}
-
-				// final result
-
-				final int v1 = x_d & 0xFF;
-				final int c2_RB = c12 & 0x00FF00FF;
-
-				final int c2_AG_org = c12 & 0xFF00FF00;
-				dst[index1++] = (c2_AG_org + ((((c34 >>> 8) & 0x00FF00FF) - (c2_AG_org >>> 8)) * v1)) & 0xFF00FF00
-						| (c2_RB + ((((c34 & 0x00FF00FF) - c2_RB) * v1) >> 8)) & 0x00FF00FF;
+			int n;
+			for (int y = 0; (n = scaler.next(buf, 0, rows)) > 0; y += n) {
+				g.drawRGB(buf, 0, size_w, 0, y, size_w, n, true);
 			}
 		}
+		return dst;
 	}
 
 	/**
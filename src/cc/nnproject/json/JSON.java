@@ -36,12 +36,21 @@ public final class JSON {
 	// parse all nested elements once
 	static final boolean parse_members = false;
 	
+	// share instances of keys and short strings between parsed values
+	static final boolean pool_strings = true;
+	
 	// identation for formatting
 	static final String FORMAT_TAB = "  ";
 	
 	// used for storing nulls, get methods must return real null
 	public static final Object json_null = new Object();
 	
+	// marks value kept unboxed in numbers array of object or array
+	static final Object json_number = new Object();
+	
+	// returned by scanLong if text is not a plain integer
+	static final long NOT_LONG = Long.MIN_VALUE;
+	
 	public static final Boolean TRUE = new Boolean(true);
 	public static final Boolean FALSE = new Boolean(false);
 	
@@ -84,155 +93,85 @@ public final class JSON {
 	}
 
 	static Object parseJSON(String str) throws JSONException {
-		char first = str.charAt(0);
-		int length = str.length() - 1;
-		char last = str.charAt(length);
+		int length = str.length();
+		char[] chars = new char[length];
+		str.getChars(0, length, chars, 0);
+		return parseJSON(new JSONSource(chars, length), 0, length - 1);
+	}
+
+	// parses value spanning [i, end] of source text
+	static Object parseJSON(JSONSource src, int i, int end) throws JSONException {
+		char[] chars = src.chars;
+		char first = chars[i];
 		switch(first) {
-		case '"': { // string
-			if (last != '"')
+		case '"': // string
+			if (end == i || chars[end] != '"')
 				throw new JSONException("Unexpected end of text");
-			if(str.indexOf('\\') != -1) {
-				char[] chars = str.substring(1, length).toCharArray();
-				str = null;
-				int l = chars.length;
-				StringBuffer sb = new StringBuffer();
-				int i = 0;
-				// parse escaped chars in string
-				loop: {
-					while (i < l) {
-						char c = chars[i];
-						switch (c) {
-						case '\\': {
-							next: {
-								replace: {
-									if (l < i + 1) {
-										sb.append(c);
-										break loop;
-									}
-									char c1 = chars[i + 1];
-									switch (c1) {
-									case 'u':
-										i+=2;
-										sb.append((char) Integer.parseInt(
-												new String(new char[] {chars[i++], chars[i++], chars[i++], chars[i++]}),
-												16));
-										break replace;
-									case 'x':
-										i+=2;
-										sb.append((char) Integer.parseInt(
-												new String(new char[] {chars[i++], chars[i++]}),
-												16));
-										break replace;
-									case 'n':
-										sb.append('\n');
-										i+=2;
-										break replace;
-									case 'r':
-										sb.append('\r');
-										i+=2;
-										break replace;
-									case 't':
-										sb.append('\t');
-										i+=2;
-										break replace;
-									case 'f':
-										sb.append('\f');
-										i+=2;
-										break replace;
-									case 'b':
-										sb.append('\b');
-										i+=2;
-										break replace;
-									case '\"':
-									case '\'':
-									case '\\':
-									case '/':
-										i+=2;
-										sb.append((char) c1);
-										break replace;
-									default:
-										break next;
-									}
-								}
-								break;
-							}
-							sb.append(c);
-							i++;
-							break;
-						}
-						default:
-							sb.append(c);
-							i++;
-						}
-					}
-				}
-				str = sb.toString();
-				sb = null;
-				return str;
-			}
-			return str.substring(1, length);
-		}
+			return parseString(chars, i + 1, end);
 		case '{': // JSON object or array
 		case '[': {
 			boolean object = first == '{';
-			if (object ? last != '}' : last != ']')
+			if (object ? chars[end] != '}' : chars[end] != ']')
 				throw new JSONException("Unexpected end of text");
-			int brackets = 0;
-			int i = 1;
-			char nextDelimiter = object ? ':' : ',';
-			boolean escape = false;
 			String key = null;
 			Object res = object ? (Object) new JSONObject() : (Object) new JSONArray();
 			
-			for (int splIndex; i < length; i = splIndex + 1) {
+			for (i++; ; i++) {
 				// skip all spaces
-				for (; i < length - 1 && str.charAt(i) <= ' '; i++);
-
-				splIndex = i;
-				boolean quote = false;
-				for (; splIndex < length && (quote || brackets > 0 || str.charAt(splIndex) != nextDelimiter); splIndex++) {
-					char c = str.charAt(splIndex);
-					if (!escape) {
-						if (c == '\\') {
-							escape = true;
-						} else if (c == '"') {
-							quote = !quote;
-						}
-					} else escape = false;
-	
-					if (!quote) {
-						if (c == '{' || c == '[') {
-							brackets++;
-						} else if (c == '}' || c == ']') {
-							brackets--;
-						}
-					}
-				}
-
-				// fail if unclosed quotes or brackets left
-				if (quote || brackets > 0) {
-					throw new JSONException("Corrupted JSON");
+				for (; i < end && chars[i] <= ' '; i++);
+				if (i == end) break;
+				
+				if (object) {
+					if (chars[i] != '"')
+						throw new JSONException("Corrupted JSON");
+					int e = stringEnd(chars, i + 1, end);
+					key = JSONPool.key(chars, i + 1, e - i - 1);
+					for (i = e + 1; i < end && chars[i] <= ' '; i++);
+					if (chars[i] != ':')
+						throw new JSONException("Corrupted JSON");
+					for (i++; i < end && chars[i] <= ' '; i++);
+					if (i == end)
+						throw new JSONException("Corrupted JSON");
 				}
-
-				if (object && key == null) {
-					key = str.substring(i, splIndex);
-					key = key.substring(1, key.length() - 1);
-					nextDelimiter = ',';
+				
+				Object value;
+				long number = 0;
+				char c = chars[i];
+				if (c == '{' || c == '[') {
+					int e = src.close(i);
+					// leave JSONString as value to parse it later, if nested parsing is disabled
+					value = parse_members ? parseJSON(src, i, e) : new JSONString(src, i, e);
+					i = e + 1;
+				} else if (c == '"') {
+					int e = stringEnd(chars, i + 1, end);
+					value = parseString(chars, i + 1, e);
+					i = e + 1;
 				} else {
-					Object value = str.substring(i, splIndex).trim();
-					// don't check length because if value is empty, then exception is going to be thrown anyway
-					char c = ((String) value).charAt(0);
-					// leave JSONString as value to parse it later, if its object or array and nested parsing is disabled
-					value = parse_members || (c != '{' && c != '[') ?
-							parseJSON((String) value) : new JSONString((String) value);
-					if (object) {
+					int e = i;
+					for (; e < end && chars[e] != ',' && chars[e] > ' '; e++);
+					if ((number = scanLong(chars, i, e - i)) != NOT_LONG) {
+						value = json_number;
+					} else {
+						value = parseJSON(src, i, e - 1);
+					}
+					i = e;
+				}
+				if (object) {
+					if (value == json_number) {
+						((JSONObject) res)._put(key, number);
+					} else {
 						((JSONObject) res)._put(key, value);
-						key = null;
-						nextDelimiter = ':';
-					} else if (splIndex > i) {
-						((JSONArray) res).addElement(value);
 					}
+				} else if (value == json_number) {
+					((JSONArray) res).addElement(number);
+				} else {
+					((JSONArray) res).addElement(value);
 				}
+				
+				for (; i < end && chars[i] <= ' '; i++);
+				if (i == end) break;
+				if (chars[i] != ',')
+					throw new JSONException("Corrupted JSON");
 			}
 			return res;
 		}
@@ -243,21 +182,13 @@ public final class JSON {
 		case 'f': // false
 			return FALSE;
 		default: // number
+			long n = scanLong(chars, i, end - i + 1);
+			if (n != NOT_LONG)
+				return box(n);
+			String str = new String(chars, i, end - i + 1);
 			if ((first >= '0' && first <= '9') || first == '-') {
 				try {
-					// hex
-					if (length > 1 && first == '0' && str.charAt(1) == 'x') {
-						if (length > 9) // str.length() > 10
-							return new Long(Long.parseLong(str.substring(2), 16));
-						return new Integer(Integer.parseInt(str.substring(2), 16));
-					}
-					// decimal
-					if (str.indexOf('.') != -1 || str.indexOf('E') != -1 || "-0".equals(str))
-						return new Double(Double.parseDouble(str));
-					if (first == '-') length--;
-					if (length > 8) // (str.length() - (str.charAt(0) == '-' ? 1 : 0)) >= 10
-						return new Long(Long.parseLong(str));
-					return new Integer(Integer.parseInt(str));
+					return parseNumber(str);
 				} catch (Exception e) {}
 			}
 			throw new JSONException("Couldn't be parsed: " + str);
@@ -265,6 +196,143 @@ public final class JSON {
 		}
 	}
 	
+	// parses plain decimal integer straight from chars, NOT_LONG if it isn't one or doesn't fit in long
+	static long scanLong(char[] chars, int i, int length) {
+		int end = i + length;
+		boolean neg = false;
+		if (i < end && chars[i] == '-') {
+			neg = true;
+			i++;
+		}
+		if (i == end || end - i > 19)
+			return NOT_LONG;
+		// accumulated as negative, its range is one bigger
+		long limit = neg ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long r = 0;
+		for (; i < end; i++) {
+			int d = chars[i] - '0';
+			if (d < 0 || d > 9)
+				return NOT_LONG;
+			if (r < (limit + d) / 10)
+				return NOT_LONG;
+			r = r * 10 - d;
+		}
+		return neg ? r : -r;
+	}
+	
+	static Object box(long l) {
+		if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
+			return new Integer((int) l);
+		return new Long(l);
+	}
+	
+	// hex, fractions, exponents and long integers
+	static Object parseNumber(String str) {
+		int length = str.length() - 1;
+		char first = str.charAt(0);
+		// hex
+		if (length > 1 && first == '0' && str.charAt(1) == 'x') {
+			if (length > 9) // str.length() > 10
+				return new Long(Long.parseLong(str.substring(2), 16));
+			return new Integer(Integer.parseInt(str.substring(2), 16));
+		}
+		// decimal
+		if (str.indexOf('.') != -1 || str.indexOf('E') != -1 || str.indexOf('e') != -1)
+			return new Double(Double.parseDouble(str));
+		return box(Long.parseLong(str));
+	}
+	
+	// position of closing quote of string starting at i
+	private static int stringEnd(char[] chars, int i, int end) throws JSONException {
+		boolean escape = false;
+		for (; i < end; i++) {
+			char c = chars[i];
+			if (escape) escape = false;
+			else if (c == '\\') escape = true;
+			else if (c == '"') return i;
+		}
+		throw new JSONException("Corrupted JSON");
+	}
+	
+	// string contents from i to l exclusive
+	private static String parseString(char[] chars, int i, int l) {
+		int s = i;
+		for (; s < l && chars[s] != '\\'; s++);
+		if (s == l)
+			return JSONPool.value(chars, i, l - i);
+		StringBuffer sb = new StringBuffer(l - i);
+		sb.append(chars, i, s - i);
+		i = s;
+		// parse escaped chars in string
+		loop: {
+			while (i < l) {
+				char c = chars[i];
+				switch (c) {
+				case '\\': {
+					next: {
+						replace: {
+							if (l <= i + 1) {
+								sb.append(c);
+								break loop;
+							}
+							char c1 = chars[i + 1];
+							switch (c1) {
+							case 'u':
+								i+=2;
+								sb.append((char) Integer.parseInt(new String(chars, i, 4), 16));
+								i+=4;
+								break replace;
+							case 'x':
+								i+=2;
+								sb.append((char) Integer.parseInt(new String(chars, i, 2), 16));
+								i+=2;
+								break replace;
+							case 'n':
+								sb.append('\n');
+								i+=2;
+								break replace;
+							case 'r':
+								sb.append('\r');
+								i+=2;
+								break replace;
+							case 't':
+								sb.append('\t');
+								i+=2;
+								break replace;
+							case 'f':
+								sb.append('\f');
+								i+=2;
+								break replace;
+							case 'b':
+								sb.append('\b');
+								i+=2;
+								break replace;
+							case '\"':
+							case '\'':
+							case '\\':
+							case '/':
+								i+=2;
+								sb.append((char) c1);
+								break replace;
+							default:
+								break next;
+							}
+						}
+						break;
+					}
+					sb.append(c);
+					i++;
+					break;
+				}
+				default:
+					sb.append(c);
+					i++;
+				}
+			}
+		}
+		return sb.toString();
+	}
+	
 	public static boolean isNull(Object obj) {
 		return obj == json_null || obj == null;
 	}
@@ -316,7 +384,7 @@ public final class JSON {
 	static double getDouble(Object o) throws JSONException {
 		try {
 			if (o instanceof JSONString)
-				return Double.parseDouble(((JSONString) o).str);
+				return Double.parseDouble(((JSONString) o).toString());
 			if (o instanceof Integer)
 				return ((Integer) o).intValue();
 			if (o instanceof Long)
@@ -330,7 +398,7 @@ public final class JSON {
 	static int getInt(Object o) throws JSONException {
 		try {
 			if (o instanceof JSONString)
-				return Integer.parseInt(((JSONString) o).str);
+				return Integer.parseInt(((JSONString) o).toString());
 			if (o instanceof Integer)
 				return ((Integer) o).intValue();
 			if (o instanceof Long)
@@ -344,7 +412,7 @@ public final class JSON {
 	static long getLong(Object o) throws JSONException {
 		try {
 			if (o instanceof JSONString)
-				return Long.parseLong(((JSONString) o).str);
+				return Long.parseLong(((JSONString) o).toString());
 			if (o instanceof Integer)
 				return ((Integer) o).longValue();
 			if (o instanceof Long)
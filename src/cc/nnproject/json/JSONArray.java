@@ -29,6 +29,9 @@ public class JSONArray extends AbstractJSON {
 	protected Object[] elements;
 	protected int count;
 	
+	// values of elements marked with json_number, allocated on first use
+	protected long[] numbers;
+	
 	public JSONArray() {
 		elements = new Object[10];
 	}
@@ -51,6 +54,7 @@ public class JSONArray extends AbstractJSON {
 	public JSONArray(String str) {
 		JSONArray tmp = JSON.getArray(str); // FIXME
 		elements = tmp.elements;
+		numbers = tmp.numbers;
 		count = tmp.count;
 	}
 
@@ -59,9 +63,7 @@ public class JSONArray extends AbstractJSON {
 			throw new JSONException("Index out of bounds: " + index);
 		}
 		try {
-			Object o = elements[index];
-			if (o instanceof JSONString)
-				o = elements[index] = JSON.parseJSON(((JSONString) o).str);
+			Object o = value(index);
 			if (o == JSON.json_null)
 				return null;
 			return o;
@@ -147,6 +149,8 @@ public class JSONArray extends AbstractJSON {
 	}
 	
 	public int getInt(int index) throws JSONException {
+		if (index >= 0 && index < count && elements[index] == JSON.json_number)
+			return (int) numbers[index];
 		return JSON.getInt(get(index));
 	}
 	
@@ -159,6 +163,8 @@ public class JSONArray extends AbstractJSON {
 	}
 	
 	public long getLong(int index) throws JSONException {
+		if (index >= 0 && index < count && elements[index] == JSON.json_number)
+			return numbers[index];
 		return JSON.getLong(get(index));
 	}
 
@@ -171,6 +177,8 @@ public class JSONArray extends AbstractJSON {
 	}
 	
 	public double getDouble(int index) throws JSONException {
+		if (index >= 0 && index < count && elements[index] == JSON.json_number)
+			return numbers[index];
 		return JSON.getDouble(get(index));
 	}
 
@@ -229,11 +237,11 @@ public class JSONArray extends AbstractJSON {
 	}
 	
 	public void add(int i) {
-		addElement(new Integer(i));
+		addElement((long) i);
 	}
 
 	public void add(long l) {
-		addElement(new Long(l));
+		addElement(l);
 	}
 
 	public void add(double d) {
@@ -377,8 +385,11 @@ public class JSONArray extends AbstractJSON {
 		}
 		count--;
 		int size = count - index;
-		if (size > 0)
+		if (size > 0) {
 			System.arraycopy(elements, index + 1, elements, index, size);
+			if (numbers != null)
+				System.arraycopy(numbers, index + 1, numbers, index, size);
+		}
 		elements[count] = null;
 	}
 	
@@ -434,7 +445,9 @@ public class JSONArray extends AbstractJSON {
 		int i = 0;
 		while (i < size) {
 			Object v = elements[i];
-			if (v instanceof AbstractJSON) {
+			if (v == JSON.json_number) {
+				s.append(numbers[i]);
+			} else if (v instanceof AbstractJSON) {
 				s.append(((AbstractJSON) v).build());
 			} else if (v instanceof String) {
 				s.append("\"").append(JSON.escape_utf8((String) v)).append("\"");
@@ -465,10 +478,7 @@ public class JSONArray extends AbstractJSON {
 		s.append(t2);
 		int i = 0;
 		while (i < size) {
-			Object v = elements[i];
-			if (v instanceof JSONString) {
-				v = elements[i] = JSON.parseJSON(((JSONString) v).str);
-			}
+			Object v = value(i);
 			if (v instanceof AbstractJSON) {
 				s.append(((AbstractJSON) v).format(l + 1));
 			} else if (v instanceof String) {
@@ -500,9 +510,7 @@ public class JSONArray extends AbstractJSON {
 			}
 			
 			public Object nextElement() {
-				Object o = elements[i];
-				if (o instanceof JSONString)
-					o = elements[i] = JSON.parseJSON(((JSONString) o).str);
+				Object o = value(i);
 				i++;
 				return o == JSON.json_null ? null : o;
 			}
@@ -525,9 +533,7 @@ public class JSONArray extends AbstractJSON {
 		int size = count;
 		Vector copy = new Vector(size);
 		for (int i = 0; i < size; i++) {
-			Object o = elements[i];
-			if (o instanceof JSONString)
-				o = elements[i] = JSON.parseJSON(((JSONString) o).str);
+			Object o = value(i);
 			if (o instanceof JSONObject) {
 				o = ((JSONObject) o).toTable();
 			} else if (o instanceof JSONArray) {
@@ -543,23 +549,42 @@ public class JSONArray extends AbstractJSON {
 		elements[count++] = object;
 	}
 	
+	void addElement(long n) {
+		if (count == elements.length) grow();
+		if (numbers == null)
+			numbers = new long[elements.length];
+		elements[count] = JSON.json_number;
+		numbers[count++] = n;
+	}
+	
+	// value at position, parsing or boxing it if needed
+	private Object value(int i) {
+		Object o = elements[i];
+		if (o instanceof JSONString)
+			elements[i] = o = ((JSONString) o).parse();
+		else if (o == JSON.json_number)
+			elements[i] = o = JSON.box(numbers[i]);
+		return o;
+	}
+	
 	private void insertElementAt(Object object, int index) {
 		if (index < 0 || index > count) {
 			throw new JSONException("Index out of bounds: " + index);
 		}
 		if (count == elements.length) grow();
 		int size = count - index;
-		if (size > 0)
+		if (size > 0) {
 			System.arraycopy(elements, index, elements, index + 1, size);
+			if (numbers != null)
+				System.arraycopy(numbers, index, numbers, index + 1, size);
+		}
 		elements[index] = object;
 		count++;
 	}
 	
 	private int _indexOf(Object object, int start) {
 		for (int i = start; i < count; i++) {
-			if (elements[i] instanceof JSONString)
-				elements[i] = JSON.parseJSON(((JSONString) elements[i]).str);
-			if (object.equals(elements[i])) return i;
+			if (object.equals(value(i))) return i;
 		}
 		return -1;
 	}
@@ -568,6 +593,8 @@ public class JSONArray extends AbstractJSON {
 		Object[] tmp = new Object[elements.length * 2];
 		System.arraycopy(elements, 0, tmp, 0, count);
 		elements = tmp;
+		if (numbers != null)
+			System.arraycopy(numbers, 0, numbers = new long[tmp.length], 0, count);
 	}
 
 }
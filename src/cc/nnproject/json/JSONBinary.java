@@ -0,0 +1,489 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+/**
+ * Compact binary encoding of JSON values<br>
+ * Layout: <code>'J' 'B' version, key count, keys, root value</code><br>
+ * Values start with type tag: integers are zigzag varints, doubles are 8 bytes,
+ * strings are UTF-8 with varint length, objects and arrays have member count
+ * and body size, so they can be skipped without reading.
+ * Object keys are stored once in the header and referenced by index.<br>
+ * Used for settings record, nothing else is stored in it yet.
+ */
+public final class JSONBinary {
+	
+	public static final int NULL = 0;
+	public static final int FALSE = 1;
+	public static final int TRUE = 2;
+	public static final int INT = 3;
+	public static final int DOUBLE = 4;
+	public static final int STRING = 5;
+	public static final int ARRAY = 6;
+	public static final int OBJECT = 7;
+	
+	private static final int VERSION = 1;
+	
+	private byte[] data;
+	private int pos;
+	private int end;
+	
+	private String[] keys;
+	private char[] chars;
+	
+	// encoder state
+	private Hashtable keyIds;
+	private int keyCount;
+	
+	// Decoding
+	
+	public static boolean isBinary(byte[] b, int offset, int length) {
+		return length >= 3 && b[offset] == 'J' && b[offset + 1] == 'B' && b[offset + 2] == VERSION;
+	}
+	
+	public static AbstractJSON decode(byte[] b) throws JSONException {
+		return decode(b, 0, b.length);
+	}
+	
+	public static AbstractJSON decode(byte[] b, int offset, int length) throws JSONException {
+		Object o = new JSONBinary(b, offset, length).nextValue();
+		if (!(o instanceof AbstractJSON))
+			throw new JSONException("Not JSON object or array");
+		return (AbstractJSON) o;
+	}
+	
+	/**
+	 * Reader over encoded data, positioned at root value
+	 */
+	public JSONBinary(byte[] b, int offset, int length) throws JSONException {
+		if (!isBinary(b, offset, length))
+			throw new JSONException("Not binary JSON");
+		data = b;
+		pos = offset + 3;
+		end = offset + length;
+		int n = readCount();
+		String[] keys = this.keys = new String[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = readString(true);
+		}
+	}
+	
+	// Returns type of next value
+	public int peek() {
+		if (pos >= end)
+			throw new JSONException("Unexpected end");
+		return data[pos];
+	}
+	
+	public Object nextValue() throws JSONException {
+		int type = readTag();
+		switch (type) {
+		case NULL:
+			return JSON.json_null;
+		case FALSE:
+			return JSON.FALSE;
+		case TRUE:
+			return JSON.TRUE;
+		case INT:
+			return JSON.box(readZigzag());
+		case DOUBLE:
+			return new Double(Double.longBitsToDouble(readLong()));
+		case STRING:
+			return readString(false);
+		case ARRAY: {
+			int n = readCount();
+			readLength();
+			JSONArray r = new JSONArray(n > 0 ? n : 1);
+			for (int i = 0; i < n; i++) {
+				if (peek() == INT) {
+					pos++;
+					r.addElement(readZigzag());
+				} else {
+					r.addElement(nextValue());
+				}
+			}
+			return r;
+		}
+		case OBJECT: {
+			int n = readCount();
+			readLength();
+			JSONObject r = new JSONObject();
+			for (int i = 0; i < n; i++) {
+				String k = nextKey();
+				if (peek() == INT) {
+					pos++;
+					r._put(k, readZigzag());
+				} else {
+					r._put(k, nextValue());
+				}
+			}
+			return r;
+		}
+		default:
+			throw new JSONException("Unknown type " + type + " at " + (pos - 1));
+		}
+	}
+	
+	public void skipValue() throws JSONException {
+		int type = readTag();
+		switch (type) {
+		case NULL:
+		case FALSE:
+		case TRUE:
+			break;
+		case INT:
+			readVarint64();
+			break;
+		case DOUBLE:
+			readLong();
+			break;
+		case STRING: {
+			pos += readCount();
+			break;
+		}
+		case ARRAY:
+		case OBJECT: {
+			readCount();
+			pos += readLength();
+			break;
+		}
+		default:
+			throw new JSONException("Unknown type " + type + " at " + (pos - 1));
+		}
+	}
+	
+	// Enters object or array, returns count of members
+	public int enter() throws JSONException {
+		int type = readTag();
+		if (type != OBJECT && type != ARRAY)
+			throw new JSONException("Not object or array at " + (pos - 1));
+		int n = readCount();
+		readLength();
+		return n;
+	}
+	
+	// Reads key of next member of object
+	public String nextKey() throws JSONException {
+		int i = readVarint();
+		if (i < 0 || i >= keys.length)
+			throw new JSONException("Unknown key " + i + " at " + pos);
+		return keys[i];
+	}
+	
+	public long nextLong() throws JSONException {
+		switch (readTag()) {
+		case INT:
+			return readZigzag();
+		case DOUBLE:
+			return (long) Double.longBitsToDouble(readLong());
+		case NULL:
+			return 0;
+		}
+		throw new JSONException("Not number at " + (pos - 1));
+	}
+	
+	public String nextString() throws JSONException {
+		int type = peek();
+		if (type == NULL) {
+			pos++;
+			return null;
+		}
+		if (type != STRING)
+			throw new JSONException("Not string at " + pos);
+		pos++;
+		return readString(false);
+	}
+	
+	private int readTag() {
+		if (pos >= end)
+			throw new JSONException("Unexpected end");
+		return data[pos++];
+	}
+	
+	private int readVarint() {
+		byte[] data = this.data;
+		int r = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (pos >= end)
+				throw new JSONException("Unexpected end");
+			int b = data[pos++];
+			r |= (b & 0x7F) << shift;
+			if (b >= 0) return r;
+		}
+	}
+	
+	private long readVarint64() {
+		byte[] data = this.data;
+		long r = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (pos >= end)
+				throw new JSONException("Unexpected end");
+			int b = data[pos++];
+			r |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return r;
+		}
+	}
+	
+	private long readZigzag() {
+		long n = readVarint64();
+		return (n >>> 1) ^ -(n & 1);
+	}
+	
+	private long readLong() {
+		if (pos + 8 > end)
+			throw new JSONException("Unexpected end");
+		long r = 0;
+		for (int i = 0; i < 8; i++) {
+			r = (r << 8) | (data[pos++] & 0xFF);
+		}
+		return r;
+	}
+	
+	// member count or byte length, each member takes at least one byte of what's left
+	private int readCount() {
+		int n = readVarint();
+		if (n < 0 || n > end - pos)
+			throw new JSONException("Unexpected end");
+		return n;
+	}
+	
+	// body size of object or array, always 4 bytes
+	private int readLength() {
+		return readCount();
+	}
+	
+	private String readString(boolean key) {
+		int n = readCount();
+		char[] chars = this.chars;
+		if (chars == null || chars.length < n)
+			chars = this.chars = new char[Math.max(n, 64)];
+		byte[] data = this.data;
+		int i = pos, e = pos + n, len = 0;
+		while (i < e) {
+			int b = data[i++];
+			if (b >= 0) {
+				chars[len++] = (char) b;
+				continue;
+			}
+			if (i + ((b & 0xE0) == 0xC0 ? 1 : (b & 0xF0) == 0xE0 ? 2 : 3) > e)
+				throw new JSONException("Malformed string at " + (i - 1));
+			if ((b & 0xE0) == 0xC0) {
+				chars[len++] = (char) (((b & 0x1F) << 6) | (data[i++] & 0x3F));
+			} else if ((b & 0xF0) == 0xE0) {
+				chars[len++] = (char) (((b & 0x0F) << 12) | ((data[i++] & 0x3F) << 6) | (data[i++] & 0x3F));
+			} else {
+				int c = (((b & 0x07) << 18) | ((data[i++] & 0x3F) << 12) | ((data[i++] & 0x3F) << 6) | (data[i++] & 0x3F)) - 0x10000;
+				chars[len++] = (char) (0xD800 | ((c >> 10) & 0x3FF));
+				chars[len++] = (char) (0xDC00 | (c & 0x3FF));
+			}
+		}
+		pos = e;
+		return key ? JSONPool.key(chars, 0, len) : JSONPool.value(chars, 0, len);
+	}
+	
+	// Encoding
+	
+	public static byte[] encode(AbstractJSON json) {
+		JSONBinary w = new JSONBinary();
+		w.write(json);
+		byte[] r = new byte[w.pos];
+		System.arraycopy(w.data, 0, r, 0, w.pos);
+		return r;
+	}
+	
+	private JSONBinary() {
+		data = new byte[256];
+		keyIds = new Hashtable();
+	}
+	
+	private void write(AbstractJSON json) {
+		// keys are collected first to be written in header
+		collectKeys(json);
+		String[] keys = new String[keyCount];
+		Enumeration e = keyIds.keys();
+		while (e.hasMoreElements()) {
+			Object k = e.nextElement();
+			keys[((Integer) keyIds.get(k)).intValue()] = (String) k;
+		}
+		ensure(3);
+		data[pos++] = 'J';
+		data[pos++] = 'B';
+		data[pos++] = VERSION;
+		writeVarint(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			writeString(keys[i]);
+		}
+		writeValue(json);
+	}
+	
+	private void collectKeys(Object v) {
+		if (v instanceof JSONString)
+			v = ((JSONString) v).parse();
+		if (v instanceof JSONObject) {
+			JSONObject o = (JSONObject) v;
+			for (int i = 0; i < o.count; i++) {
+				if (!keyIds.containsKey(o.names[i]))
+					keyIds.put(o.names[i], new Integer(keyCount++));
+				collectKeys(o.values[i]);
+			}
+		} else if (v instanceof JSONArray) {
+			JSONArray a = (JSONArray) v;
+			for (int i = 0; i < a.count; i++) {
+				collectKeys(a.elements[i]);
+			}
+		}
+	}
+	
+	private void writeValue(Object v) {
+		if (v instanceof JSONString)
+			v = ((JSONString) v).parse();
+		if (v == null || v == JSON.json_null) {
+			writeTag(NULL);
+		} else if (v instanceof JSONObject) {
+			JSONObject o = (JSONObject) v;
+			writeTag(OBJECT);
+			writeVarint(o.count);
+			int start = beginLength();
+			for (int i = 0; i < o.count; i++) {
+				writeVarint(((Integer) keyIds.get(o.names[i])).intValue());
+				Object e = o.values[i];
+				if (e == JSON.json_number) {
+					writeInt(o.numbers[i]);
+				} else {
+					writeValue(e);
+				}
+			}
+			endLength(start);
+		} else if (v instanceof JSONArray) {
+			JSONArray a = (JSONArray) v;
+			writeTag(ARRAY);
+			writeVarint(a.count);
+			int start = beginLength();
+			for (int i = 0; i < a.count; i++) {
+				Object e = a.elements[i];
+				if (e == JSON.json_number) {
+					writeInt(a.numbers[i]);
+				} else {
+					writeValue(e);
+				}
+			}
+			endLength(start);
+		} else if (v instanceof String) {
+			writeTag(STRING);
+			writeString((String) v);
+		} else if (v instanceof Boolean) {
+			writeTag(((Boolean) v).booleanValue() ? TRUE : FALSE);
+		} else if (v instanceof Integer) {
+			writeInt(((Integer) v).intValue());
+		} else if (v instanceof Long) {
+			writeInt(((Long) v).longValue());
+		} else if (v instanceof Double) {
+			writeTag(DOUBLE);
+			long l = Double.doubleToLongBits(((Double) v).doubleValue());
+			ensure(8);
+			for (int s = 56; s >= 0; s -= 8) {
+				data[pos++] = (byte) (l >> s);
+			}
+		} else {
+			writeTag(STRING);
+			writeString(v.toString());
+		}
+	}
+	
+	private void writeTag(int tag) {
+		ensure(1);
+		data[pos++] = (byte) tag;
+	}
+	
+	private void writeInt(long n) {
+		writeTag(INT);
+		writeVarint((n << 1) ^ (n >> 63));
+	}
+	
+	private void writeVarint(long n) {
+		ensure(10);
+		while ((n & ~0x7FL) != 0) {
+			data[pos++] = (byte) ((n & 0x7F) | 0x80);
+			n >>>= 7;
+		}
+		data[pos++] = (byte) n;
+	}
+	
+	// reserves 4 bytes for body size
+	private int beginLength() {
+		ensure(4);
+		pos += 4;
+		return pos;
+	}
+	
+	// writes body size as padded varint
+	private void endLength(int start) {
+		int n = pos - start;
+		if (n >= 1 << 28)
+			throw new JSONException("Value too large");
+		byte[] data = this.data;
+		int p = start - 4;
+		data[p++] = (byte) ((n & 0x7F) | 0x80);
+		data[p++] = (byte) (((n >> 7) & 0x7F) | 0x80);
+		data[p++] = (byte) (((n >> 14) & 0x7F) | 0x80);
+		data[p] = (byte) ((n >> 21) & 0x7F);
+	}
+	
+	private void writeString(String s) {
+		int len = s.length();
+		int n = 0;
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			n += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+		}
+		writeVarint(n);
+		ensure(n);
+		byte[] data = this.data;
+		int p = pos;
+		// surrogates are kept as 3 byte sequences, decoder returns them as is
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				data[p++] = (byte) c;
+			} else if (c < 0x800) {
+				data[p++] = (byte) (0xC0 | (c >> 6));
+				data[p++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				data[p++] = (byte) (0xE0 | (c >> 12));
+				data[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				data[p++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		pos = p;
+	}
+	
+	private void ensure(int n) {
+		if (pos + n <= data.length) return;
+		int size = data.length * 2;
+		while (size < pos + n) size *= 2;
+		System.arraycopy(data, 0, data = new byte[size], 0, pos);
+	}
+
+}
@@ -25,33 +25,58 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 
 public class JSONObject extends AbstractJSON {
+	
+	// objects up to this size are searched linearly
+	private static final int LINEAR = 8;
 
-	protected Hashtable table;
+	// members in insertion order
+	protected String[] names;
+	protected Object[] values;
+	protected int[] hashes;
+	protected int count;
+	
+	// values of members marked with json_number, allocated on first use
+	protected long[] numbers;
+	
+	// open addressed table of member positions + 1, null while small
+	private int[] index;
 
 	public JSONObject() {
-		table = new Hashtable();
+		names = new String[LINEAR];
+		values = new Object[LINEAR];
+		hashes = new int[LINEAR];
 	}
 
 	/**
 	 * @deprecated Doesn't adapt nested elements
 	 */
 	public JSONObject(Hashtable table) {
-		this.table = table;
+		this();
+		Enumeration keys = table.keys();
+		while (keys.hasMoreElements()) {
+			String k = (String) keys.nextElement();
+			_put(k, table.get(k));
+		}
 	}
 
 	/**
 	 * @deprecated Compatibility with org.json
 	 */
 	public JSONObject(String str) {
-		table = JSON.getObject(str).table; // FIXME
+		JSONObject tmp = JSON.getObject(str); // FIXME
+		names = tmp.names;
+		values = tmp.values;
+		hashes = tmp.hashes;
+		numbers = tmp.numbers;
+		count = tmp.count;
+		index = tmp.index;
 	}
 	
 	public Object get(String name) throws JSONException {
 		try {
-			if (has(name)) {
-				Object o = table.get(name);
-				if (o instanceof JSONString)
-					table.put(name, o = JSON.parseJSON(((JSONString) o).str));
+			int i = indexOf(name);
+			if (i != -1) {
+				Object o = value(i);
 				if (o == JSON.json_null)
 					return null;
 				return o;
@@ -66,9 +91,11 @@ public class JSONObject extends AbstractJSON {
 	// unused methods should be removed by proguard shrinking
 	
 	public Object get(String name, Object def) {
-		if (!has(name)) return def;
+		int i = indexOf(name);
+		if (i == -1) return def;
 		try {
-			return get(name);
+			Object o = value(i);
+			return o == JSON.json_null ? null : o;
 		} catch (Exception e) {
 			return def;
 		}
@@ -108,11 +135,9 @@ public class JSONObject extends AbstractJSON {
 		}
 	}
 	public JSONObject getObject(String name, JSONObject def) {
-		if (has(name)) {
-			try {
-				return (JSONObject) get(name);
-			} catch (Exception e) {
-			}
+		try {
+			return (JSONObject) get(name, def);
+		} catch (Exception e) {
 		}
 		return def;
 	}
@@ -130,11 +155,9 @@ public class JSONObject extends AbstractJSON {
 	}
 	
 	public JSONArray getArray(String name, JSONArray def) throws JSONException {
-		if (has(name)) {
-			try {
-				return (JSONArray) get(name);
-			} catch (Exception e) {
-			}
+		try {
+			return (JSONArray) get(name, def);
+		} catch (Exception e) {
 		}
 		return def;
 	}
@@ -145,39 +168,57 @@ public class JSONObject extends AbstractJSON {
 	}
 	
 	public int getInt(String name) throws JSONException {
+		int i = indexOf(name);
+		if (i != -1 && values[i] == JSON.json_number)
+			return (int) numbers[i];
 		return JSON.getInt(get(name));
 	}
 	
 	public int getInt(String name, int def) {
-		if (!has(name)) return def;
+		int i = indexOf(name);
+		if (i == -1) return def;
+		if (values[i] == JSON.json_number)
+			return (int) numbers[i];
 		try {
-			return getInt(name);
+			return JSON.getInt(value(i));
 		} catch (Exception e) {
 			return def;
 		}
 	}
 	
 	public long getLong(String name) throws JSONException {
+		int i = indexOf(name);
+		if (i != -1 && values[i] == JSON.json_number)
+			return numbers[i];
 		return JSON.getLong(get(name));
 	}
 
 	public long getLong(String name, long def) {
-		if (!has(name)) return def;
+		int i = indexOf(name);
+		if (i == -1) return def;
+		if (values[i] == JSON.json_number)
+			return numbers[i];
 		try {
-			return getLong(name);
+			return JSON.getLong(value(i));
 		} catch (Exception e) {
 			return def;
 		}
 	}
 	
 	public double getDouble(String name) throws JSONException {
+		int i = indexOf(name);
+		if (i != -1 && values[i] == JSON.json_number)
+			return numbers[i];
 		return JSON.getDouble(get(name));
 	}
 
 	public double getDouble(String name, double def) {
-		if (!has(name)) return def;
+		int i = indexOf(name);
+		if (i == -1) return def;
+		if (values[i] == JSON.json_number)
+			return numbers[i];
 		try {
-			return getDouble(name);
+			return JSON.getDouble(value(i));
 		} catch (Exception e) {
 			return def;
 		}
@@ -207,65 +248,89 @@ public class JSONObject extends AbstractJSON {
 	}
 	
 	public boolean isNull(String name) {
-		if (!has(name))
+		int i = indexOf(name);
+		if (i == -1)
 			throw new JSONException("No value for name: " + name);
-		return table.get(name) == JSON.json_null;
+		return values[i] == JSON.json_null;
 	}
 	
 	/**
 	 * @deprecated
 	 */
 	public void put(String name, Object obj) {
-		table.put(name, JSON.getJSON(obj));
+		_put(name, JSON.getJSON(obj));
 	}
 	
 	public void put(String name, AbstractJSON json) {
-		table.put(name, json);
+		_put(name, json);
 	}
 	
 	public void put(String name, String s) {
-		table.put(name, s);
+		_put(name, s);
 	}
 
 	public void put(String name, int i) {
-		table.put(name, new Integer(i));
+		_put(name, (long) i);
 	}
 
 	public void put(String name, long l) {
-		table.put(name, new Long(l));
+		_put(name, l);
 	}
 
 	public void put(String name, double d) {
-		table.put(name, new Double(d));
+		_put(name, new Double(d));
 	}
 
 	public void put(String name, boolean b) {
-		table.put(name, new Boolean(b));
+		_put(name, new Boolean(b));
 	}
 	
 	public boolean hasValue(Object object) {
-		return table.contains(JSON.getJSON(object));
+		object = JSON.getJSON(object);
+		for (int i = 0; i < count; i++) {
+			if (object.equals(value(i))) return true;
+		}
+		return false;
 	}
 	
 	// hasKey
 	public boolean has(String name) {
-		return table.containsKey(name);
+		return indexOf(name) != -1;
 	}
 	
 	public void clear() {
-		table.clear();
+		for (int i = 0; i < count; i++) {
+			names[i] = null;
+			values[i] = null;
+		}
+		count = 0;
+		index = null;
 	}
 	
 	public void remove(String name) {
-		table.remove(name);
+		int i = indexOf(name);
+		if (i == -1) return;
+		int size = count - i - 1;
+		if (size > 0) {
+			System.arraycopy(names, i + 1, names, i, size);
+			System.arraycopy(values, i + 1, values, i, size);
+			System.arraycopy(hashes, i + 1, hashes, i, size);
+			if (numbers != null)
+				System.arraycopy(numbers, i + 1, numbers, i, size);
+		}
+		count--;
+		names[count] = null;
+		values[count] = null;
+		index = null;
+		if (count > LINEAR) rehash(indexSize());
 	}
 	
 	public int size() {
-		return table.size();
+		return count;
 	}
 	
 	public boolean isEmpty() {
-		return table.isEmpty();
+		return count == 0;
 	}
 	
 	public String toString() {
@@ -280,16 +345,15 @@ public class JSONObject extends AbstractJSON {
 		if (!(obj instanceof JSONObject)) {
 			return false;
 		}
-		if (table.equals(((JSONObject) obj).table)) {
-			return true;
-		}
-		int size = size();
+		int size = count;
 		if (size != ((JSONObject)obj).size()) {
 			return false;
 		}
-		Enumeration keys = table.keys();
-		while (keys.hasMoreElements()) {
-			String key = (String) keys.nextElement();
+		for (int i = 0; i < size; i++) {
+			String key = names[i];
+			if (!((JSONObject) obj).has(key)) {
+				return false;
+			}
 			Object a = get(key);
 			Object b = ((JSONObject)obj).get(key);
 			if (a == b) {
@@ -310,15 +374,16 @@ public class JSONObject extends AbstractJSON {
 	}
 
 	public String build() {
-		if (size() == 0)
+		int size = count;
+		if (size == 0)
 			return "{}";
 		StringBuffer s = new StringBuffer("{");
-		Enumeration keys = table.keys();
-		while (true) {
-			String k = (String) keys.nextElement();
-			s.append("\"").append(k).append("\":");
-			Object v = table.get(k);
-			if (v instanceof AbstractJSON) {
+		for (int i = 0; ; ) {
+			s.append("\"").append(names[i]).append("\":");
+			Object v = values[i];
+			if (v == JSON.json_number) {
+				s.append(numbers[i]);
+			} else if (v instanceof AbstractJSON) {
 				s.append(((AbstractJSON) v).build());
 			} else if (v instanceof String) {
 				s.append("\"").append(JSON.escape_utf8((String) v)).append("\"");
@@ -327,7 +392,7 @@ public class JSONObject extends AbstractJSON {
 			} else {
 				s.append(v);
 			}
-			if (!keys.hasMoreElements()) {
+			if (++i == size) {
 				break;
 			}
 			s.append(",");
@@ -337,7 +402,7 @@ public class JSONObject extends AbstractJSON {
 	}
 
 	protected String format(int l) {
-		int size = size();
+		int size = count;
 		if (size == 0)
 			return "{}";
 		String t = "";
@@ -347,14 +412,9 @@ public class JSONObject extends AbstractJSON {
 		String t2 = t.concat(JSON.FORMAT_TAB);
 		StringBuffer s = new StringBuffer("{\n");
 		s.append(t2);
-		Enumeration keys = table.keys();
-		int i = 0;
-		while (keys.hasMoreElements()) {
-			String k = (String) keys.nextElement();
-			s.append("\"").append(k).append("\": ");
-			Object v = get(k);
-			if (v instanceof JSONString)
-				table.put(k, v = JSON.parseJSON(((JSONString) v).str));
+		for (int i = 0; i < size; ) {
+			s.append("\"").append(names[i]).append("\": ");
+			Object v = value(i);
 			if (v instanceof AbstractJSON) {
 				s.append(((AbstractJSON) v).format(l + 1));
 			} else if (v instanceof String) {
@@ -378,45 +438,143 @@ public class JSONObject extends AbstractJSON {
 	}
 
 	public Enumeration keys() {
-		return table.keys();
+		return new Enumeration() {
+			int i = 0;
+			
+			public boolean hasMoreElements() {
+				return i < count;
+			}
+			
+			public Object nextElement() {
+				return names[i++];
+			}
+		};
 	}
 
 	public JSONArray keysAsArray() {
-		JSONArray array = new JSONArray(table.size());
-		Enumeration keys = table.keys();
-		while (keys.hasMoreElements()) {
-			array.addElement(keys.nextElement());
+		JSONArray array = new JSONArray(count);
+		for (int i = 0; i < count; i++) {
+			array.addElement(names[i]);
 		}
 		return array;
 	}
 	
 	/**
-	 * @deprecated Use {@link JSONObject#toTable()} instead
+	 * @deprecated Returns a copy, use {@link JSONObject#toTable()} instead
 	 */
 	public Hashtable getTable() {
-		return table;
+		Hashtable copy = new Hashtable(count);
+		for (int i = 0; i < count; i++) {
+			copy.put(names[i], value(i));
+		}
+		return copy;
 	}
 
 	public Hashtable toTable() {
-		Hashtable copy = new Hashtable(table.size());
-		Enumeration keys = table.keys();
-		while (keys.hasMoreElements()) {
-			String k = (String) keys.nextElement();
-			Object v = table.get(k);
-			if (v instanceof JSONString)
-				table.put(k, v = JSON.parseJSON(((JSONString) v).str));
+		Hashtable copy = new Hashtable(count);
+		for (int i = 0; i < count; i++) {
+			Object v = value(i);
 			if (v instanceof JSONObject) {
 				v = ((JSONObject) v).toTable();
 			} else if (v instanceof JSONArray) {
 				v = ((JSONArray) v).toVector();
 			}
-			copy.put(k, v);
+			copy.put(names[i], v);
 		}
 		return copy;
 	}
 	
 	void _put(String name, Object obj) {
-		table.put(name, obj);
+		if (obj == null) obj = JSON.json_null;
+		int i = slot(name);
+		values[i] = obj;
+	}
+	
+	void _put(String name, long n) {
+		int i = slot(name);
+		if (numbers == null)
+			numbers = new long[values.length];
+		values[i] = JSON.json_number;
+		numbers[i] = n;
+	}
+	
+	// position of member, appended if not present
+	private int slot(String name) {
+		int h = name.hashCode();
+		int i = indexOf(name, h);
+		if (i != -1)
+			return i;
+		if ((i = count) == names.length) {
+			int n = i << 1;
+			System.arraycopy(names, 0, names = new String[n], 0, i);
+			System.arraycopy(values, 0, values = new Object[n], 0, i);
+			System.arraycopy(hashes, 0, hashes = new int[n], 0, i);
+			if (numbers != null)
+				System.arraycopy(numbers, 0, numbers = new long[n], 0, i);
+		}
+		names[i] = name;
+		hashes[i] = h;
+		count = i + 1;
+		if (index != null && (count << 1) <= index.length) {
+			insert(index, i);
+		} else if (count > LINEAR) {
+			rehash(indexSize());
+		}
+		return i;
+	}
+	
+	// value at position, parsing or boxing it if needed
+	private Object value(int i) {
+		Object o = values[i];
+		if (o instanceof JSONString)
+			values[i] = o = ((JSONString) o).parse();
+		else if (o == JSON.json_number)
+			values[i] = o = JSON.box(numbers[i]);
+		return o;
+	}
+	
+	private int indexOf(String name) {
+		if (name == null) return -1;
+		return indexOf(name, name.hashCode());
+	}
+	
+	private int indexOf(String name, int h) {
+		int[] index = this.index;
+		if (index == null) {
+			for (int i = 0; i < count; i++) {
+				if (hashes[i] == h && name.equals(names[i])) return i;
+			}
+			return -1;
+		}
+		int mask = index.length - 1;
+		for (int s = (h ^ (h >>> 16)) & mask; ; s = (s + 1) & mask) {
+			int i = index[s] - 1;
+			if (i == -1) return -1;
+			if (hashes[i] == h && name.equals(names[i])) return i;
+		}
+	}
+	
+	// power of two with load factor at most 1/2
+	private int indexSize() {
+		int n = 16;
+		while (n < (count << 1)) n <<= 1;
+		return n;
+	}
+	
+	private void rehash(int size) {
+		int[] index = new int[size];
+		for (int i = 0; i < count; i++) {
+			insert(index, i);
+		}
+		this.index = index;
+	}
+	
+	private void insert(int[] index, int i) {
+		int mask = index.length - 1;
+		int h = hashes[i];
+		int s = (h ^ (h >>> 16)) & mask;
+		while (index[s] != 0) s = (s + 1) & mask;
+		index[s] = i + 1;
 	}
 	
 	// TODO: Enumeration elements()
@@ -0,0 +1,72 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+// bounded tables of shared instances for keys and short string values
+final class JSONPool {
+	
+	// longer values are rarely repeated, don't let them take slots
+	static final int MAX_LENGTH = 24;
+	
+	// two-way sets, keys are kept apart so values can't evict them
+	private static final String[] keys = new String[256];
+	private static final int[] keyHashes = new int[256];
+	private static final String[] values = new String[1024];
+	private static final int[] valueHashes = new int[1024];
+	
+	static String key(char[] chars, int offset, int length) {
+		if (!JSON.pool_strings || length > 64)
+			return new String(chars, offset, length);
+		return get(keys, keyHashes, chars, offset, length);
+	}
+	
+	static String value(char[] chars, int offset, int length) {
+		if (!JSON.pool_strings || length > MAX_LENGTH)
+			return new String(chars, offset, length);
+		return get(values, valueHashes, chars, offset, length);
+	}
+	
+	private static String get(String[] strings, int[] hashes, char[] chars, int offset, int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + chars[offset + i];
+		}
+		int slot = (h ^ (h >>> 10)) & (strings.length - 2);
+		for (int way = slot; way < slot + 2; way++) {
+			String s = strings[way];
+			if (s == null || hashes[way] != h || s.length() != length)
+				continue;
+			int i = 0;
+			while (i < length && s.charAt(i) == chars[offset + i]) i++;
+			if (i == length)
+				return s;
+		}
+		// newest string takes the first way, previous one moves to the second
+		String s = new String(chars, offset, length);
+		strings[slot + 1] = strings[slot];
+		hashes[slot + 1] = hashes[slot];
+		strings[slot] = s;
+		hashes[slot] = h;
+		return s;
+	}
+
+}
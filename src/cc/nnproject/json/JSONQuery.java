@@ -0,0 +1,264 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Vector;
+
+/**
+ * Selective parsing over JSONStream<br>
+ * Paths are compiled once, e.g. <code>posts[*].id</code>, <code>post[0].file.url</code>, <code>[*].tags.*</code>.
+ * Only matching values are built, everything else is skipped.
+ */
+public final class JSONQuery {
+	
+	private static final int KEY = -2;
+	private static final int ANY_INDEX = -1;
+	
+	// per path steps, key steps have index KEY, "*" matches any key
+	private final String[][] keys;
+	private final int[][] indexes;
+	private final int count;
+	
+	private JSONQuery(String[][] keys, int[][] indexes) {
+		this.keys = keys;
+		this.indexes = indexes;
+		this.count = keys.length;
+	}
+	
+	public static JSONQuery compile(String path) {
+		return compile(new String[] { path });
+	}
+	
+	public static JSONQuery compile(String[] paths) {
+		int n = paths.length;
+		if (n > 32)
+			throw new IllegalArgumentException("Too many paths");
+		String[][] keys = new String[n][];
+		int[][] indexes = new int[n][];
+		Vector k = new Vector();
+		Vector i = new Vector();
+		for (int p = 0; p < n; p++) {
+			String path = paths[p];
+			int len = path.length();
+			int pos = 0;
+			while (pos < len) {
+				char c = path.charAt(pos);
+				if (c == '.') {
+					pos++;
+					continue;
+				}
+				if (c == '[') {
+					int end = path.indexOf(']', pos);
+					if (end == -1)
+						throw new JSONException("Malformed path: ".concat(path));
+					String s = path.substring(pos + 1, end).trim();
+					k.addElement(null);
+					i.addElement(new Integer("*".equals(s) ? ANY_INDEX : Integer.parseInt(s)));
+					pos = end + 1;
+					continue;
+				}
+				int end = pos;
+				while (end < len && (c = path.charAt(end)) != '.' && c != '[') end++;
+				k.addElement(path.substring(pos, end));
+				i.addElement(new Integer(KEY));
+				pos = end;
+			}
+			int steps = k.size();
+			if (steps == 0)
+				throw new JSONException("Empty path");
+			keys[p] = new String[steps];
+			k.copyInto(keys[p]);
+			indexes[p] = new int[steps];
+			for (int j = 0; j < steps; j++) {
+				indexes[p][j] = ((Integer) i.elementAt(j)).intValue();
+			}
+			k.removeAllElements();
+			i.removeAllElements();
+		}
+		return new JSONQuery(keys, indexes);
+	}
+	
+	/**
+	 * Reads stream and passes matched values to handler.
+	 * Stream must be at start of document.
+	 */
+	public void run(JSONStream s, JSONQueryHandler h) throws IOException {
+		int t = s.nextToken();
+		if (t != JSONStream.START_OBJECT && t != JSONStream.START_ARRAY)
+			throw new JSONException("run: Not json");
+		walk(s, t == JSONStream.START_OBJECT, 0, count == 32 ? -1 : (1 << count) - 1, h);
+	}
+	
+	/**
+	 * Reads stream and collects matched values.
+	 * 
+	 * @return Array of matched values for each path
+	 */
+	public JSONArray[] select(JSONStream s) throws IOException {
+		final JSONArray[] res = new JSONArray[count];
+		for (int i = 0; i < count; i++) {
+			res[i] = new JSONArray();
+		}
+		run(s, new JSONQueryHandler() {
+			public void value(int path, Object value) {
+				res[path].addElement(value == null ? JSON.json_null : value);
+			}
+		});
+		return res;
+	}
+	
+	// walks contents of container, which start token is already read
+	private void walk(JSONStream s, boolean object, int level, int mask, JSONQueryHandler h) throws IOException {
+		int index = 0;
+		while (true) {
+			int t = s.nextToken();
+			if (t == JSONStream.END_OBJECT || t == JSONStream.END_ARRAY || t == JSONStream.END_DOCUMENT)
+				return;
+			
+			// find paths that continue with this key or index
+			int next = 0;
+			int matched = 0;
+			for (int p = 0; p < count; p++) {
+				if ((mask & (1 << p)) == 0) continue;
+				int[] idx = indexes[p];
+				if (object) {
+					if (idx[level] != KEY) continue;
+					String k = keys[p][level];
+					if (!"*".equals(k) && !s.tokenEquals(k)) continue;
+				} else {
+					if (idx[level] == KEY || (idx[level] != ANY_INDEX && idx[level] != index)) continue;
+				}
+				if (idx.length == level + 1) {
+					matched |= 1 << p;
+				} else {
+					next |= 1 << p;
+				}
+			}
+			index++;
+			
+			if (object) {
+				if (matched == 0 && next == 0) {
+					s.skipChildren();
+					continue;
+				}
+				t = s.nextToken();
+			} else if (matched == 0 && next == 0) {
+				if (t == JSONStream.START_OBJECT || t == JSONStream.START_ARRAY)
+					s.skipChildren();
+				continue;
+			}
+			
+			if (matched != 0) {
+				Object v = value(s, t);
+				for (int p = 0; p < count; p++) {
+					if ((matched & (1 << p)) != 0)
+						h.value(p, v);
+				}
+				// value is already built, continue longer paths on it
+				if (next != 0 && v instanceof AbstractJSON)
+					walk(v, level + 1, next, h);
+			} else if (t == JSONStream.START_OBJECT || t == JSONStream.START_ARRAY) {
+				walk(s, t == JSONStream.START_OBJECT, level + 1, next, h);
+			}
+		}
+	}
+	
+	// same as above, but on built value
+	private void walk(Object v, int level, int mask, JSONQueryHandler h) {
+		boolean object = v instanceof JSONObject;
+		Enumeration keys = object ? ((JSONObject) v).keys() : null;
+		int size = object ? 0 : ((JSONArray) v).size();
+		for (int index = 0; object ? keys.hasMoreElements() : index < size; index++) {
+			String key = object ? (String) keys.nextElement() : null;
+			int next = 0;
+			for (int p = 0; p < count; p++) {
+				if ((mask & (1 << p)) == 0) continue;
+				int[] idx = indexes[p];
+				if (object) {
+					if (idx[level] != KEY) continue;
+					String k = this.keys[p][level];
+					if (!"*".equals(k) && !k.equals(key)) continue;
+				} else {
+					if (idx[level] == KEY || (idx[level] != ANY_INDEX && idx[level] != index)) continue;
+				}
+				Object c = object ? ((JSONObject) v).get(key) : ((JSONArray) v).get(index);
+				if (idx.length == level + 1) {
+					h.value(p, c);
+				} else if (c instanceof AbstractJSON) {
+					next |= 1 << p;
+				}
+			}
+			if (next != 0)
+				walk(object ? ((JSONObject) v).get(key) : ((JSONArray) v).get(index), level + 1, next, h);
+		}
+	}
+	
+	// builds value of current token
+	private static Object value(JSONStream s, int t) throws IOException {
+		switch (t) {
+		case JSONStream.STRING:
+			return s.getTokenString();
+		case JSONStream.NUMBER:
+			return number(s);
+		case JSONStream.TRUE:
+			return JSON.TRUE;
+		case JSONStream.FALSE:
+			return JSON.FALSE;
+		case JSONStream.START_OBJECT: {
+			JSONObject r = new JSONObject();
+			while ((t = s.nextToken()) == JSONStream.KEY) {
+				String k = s.getTokenString();
+				Object v = value(s, s.nextToken());
+				r._put(k, v == null ? JSON.json_null : v);
+			}
+			return r;
+		}
+		case JSONStream.START_ARRAY: {
+			JSONArray r = new JSONArray();
+			while ((t = s.nextToken()) != JSONStream.END_ARRAY) {
+				Object v = value(s, t);
+				r.addElement(v == null ? JSON.json_null : v);
+			}
+			return r;
+		}
+		default:
+			return null;
+		}
+	}
+	
+	private static Object number(JSONStream s) {
+		String str = s.getTokenString();
+		try {
+			if (str.indexOf('.') != -1 || str.indexOf('e') != -1 || str.indexOf('E') != -1)
+				return new Double(Double.parseDouble(str));
+			long l = s.getTokenLong();
+			if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
+				return new Integer((int) l);
+			return new Long(l);
+		} catch (Exception e) {
+			return str;
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+// shared text of a parsed document with positions of matching brackets
+final class JSONSource {
+	
+	final char[] chars;
+	
+	// opening bracket positions in ascending order and their closing pairs
+	private int[] opens;
+	private int[] closes;
+	private int count;
+	
+	JSONSource(char[] chars, int length) throws JSONException {
+		this.chars = chars;
+		int[] opens = new int[16];
+		int[] closes = new int[16];
+		int[] stack = new int[16];
+		int count = 0, depth = 0;
+		boolean quote = false, escape = false;
+		for (int i = 0; i < length; i++) {
+			char c = chars[i];
+			if (quote) {
+				if (escape) escape = false;
+				else if (c == '\\') escape = true;
+				else if (c == '"') quote = false;
+				continue;
+			}
+			switch (c) {
+			case '"':
+				quote = true;
+				break;
+			case '{':
+			case '[':
+				if (count == opens.length) {
+					System.arraycopy(opens, 0, opens = new int[count << 1], 0, count);
+					System.arraycopy(closes, 0, closes = new int[count << 1], 0, count);
+				}
+				if (depth == stack.length) {
+					System.arraycopy(stack, 0, stack = new int[depth << 1], 0, depth);
+				}
+				opens[count] = i;
+				stack[depth++] = count++;
+				break;
+			case '}':
+			case ']':
+				if (depth == 0)
+					throw new JSONException("Corrupted JSON");
+				closes[stack[--depth]] = i;
+				break;
+			}
+		}
+		// fail if unclosed quotes or brackets left
+		if (quote || depth > 0)
+			throw new JSONException("Corrupted JSON");
+		this.opens = opens;
+		this.closes = closes;
+		this.count = count;
+	}
+	
+	// position of bracket closing the one at given position
+	int close(int open) throws JSONException {
+		int[] opens = this.opens;
+		int lo = 0, hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int p = opens[mid];
+			if (p < open) lo = mid + 1;
+			else if (p > open) hi = mid - 1;
+			else return closes[mid];
+		}
+		throw new JSONException("Corrupted JSON");
+	}
+
+}
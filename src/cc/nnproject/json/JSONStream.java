@@ -29,24 +29,58 @@ import java.io.Reader;
 // Streaming JSON
 
 public class JSONStream {
+	
+	// Pull parser tokens
+	public static final int END_DOCUMENT = 0;
+	public static final int START_OBJECT = 1;
+	public static final int END_OBJECT = 2;
+	public static final int START_ARRAY = 3;
+	public static final int END_ARRAY = 4;
+	public static final int KEY = 5;
+	public static final int STRING = 6;
+	public static final int NUMBER = 7;
+	public static final int TRUE = 8;
+	public static final int FALSE = 9;
+	public static final int NULL = 10;
 
 	public static String encoding = "UTF-8";
 	public static boolean buffer = true;
 	
 	private Reader reader;
+	// UTF-8 input is decoded from bytes directly, without reader
+	private InputStream in;
+	private byte[] bytes;
+	private int pos;
+	private int len;
+	// second half of surrogate pair
+	private int low = -1;
 	private boolean isObject;
 	int index;
 	private boolean eof;
 	private char prev;
 	private boolean usePrev;
+	// reusable buffer for keys and tokens
+	private char[] buf;
+	private int bufLen;
+	// pull parser state
+	private int token = -1;
+	private int depth;
+	// true for object levels
+	private boolean[] levels;
 	
 	private JSONStream() {}
 	
 	private void init(InputStream in) throws IOException {
-		reader = new InputStreamReader(in, "UTF-8");
-		if (buffer) {
-			reader = new BufferedReader(reader);
+		if (!"UTF-8".equals(encoding)) {
+			reader = new InputStreamReader(in, encoding);
+			if (buffer) {
+				reader = new BufferedReader(reader);
+			}
+			return;
 		}
+		this.in = in;
+		bytes = new byte[buffer ? 16384 : 1024];
+		pos = len = 0;
 	}
 	
 	// Static functions
@@ -158,6 +192,35 @@ public class JSONStream {
 		return v;
 	}
 	
+	// Reads number without boxing, quoted numbers are accepted, null is read as 0
+	public long nextLong() throws IOException {
+		int n;
+		switch (nextTrim()) {
+		case 'n':
+			skip(3);
+			return 0;
+		case '"':
+			n = readString();
+			break;
+		default:
+			back();
+			n = readValue();
+		}
+		long r = JSON.scanLong(buf, 0, n);
+		if (r != JSON.NOT_LONG)
+			return r;
+		String s = new String(buf, 0, n);
+		try {
+			return (long) Double.parseDouble(s);
+		} catch (Exception e) {
+			throw new JSONException("nextLong: not number: ".concat(s));
+		}
+	}
+	
+	public int nextInt() throws IOException {
+		return (int) nextLong();
+	}
+	
 	public boolean isObject() {
 		return isObject;
 	}
@@ -219,6 +282,34 @@ public class JSONStream {
 		}
 	}
 	
+	// Reads next key in object and finds it in given array without allocating
+	// Returns index of key, -1 if it is not in array, or -2 if object has ended
+	// Value must be read or skipped by caller
+	public int nextKey(String[] keys) throws IOException {
+		char c = nextTrim();
+		if (c == ',')
+			c = nextTrim();
+		if (c == '}')
+			return -2;
+		if (c != '"')
+			throw new JSONException("nextKey: malformed object at ".concat(Integer.toString(index)));
+		int len = readString();
+		char[] buf = this.buf;
+		if (nextTrim() != ':')
+			throw new JSONException("nextKey: malformed object at ".concat(Integer.toString(index)));
+		
+		int n = keys.length;
+		search: for (int i = 0; i < n; i++) {
+			String k = keys[i];
+			if (k == null || k.length() != len) continue;
+			for (int j = 0; j < len; j++) {
+				if (k.charAt(j) != buf[j]) continue search;
+			}
+			return i;
+		}
+		return -1;
+	}
+	
 	// Skip N elements in array
 	// If param is less than 1 or bigger than left elements count, will skip to the end of array
 	// Result is success
@@ -304,6 +395,136 @@ public class JSONStream {
 		}
 	}
 	
+	// Pull parser functions
+	
+	// Reads next token, value of KEY, STRING and NUMBER tokens can be accessed with getToken*() methods
+	// Not compatible with other reading functions, except skipChildren()
+	public int nextToken() throws IOException {
+		if (token != -1 && depth == 0)
+			return token = END_DOCUMENT;
+		char c = nextTrim();
+		if (c == ',')
+			c = nextTrim();
+		boolean object = depth > 0 && levels[depth - 1];
+		if (object && token != KEY && c != '"' && c != '}')
+			throw new JSONException("nextToken: malformed object at ".concat(Integer.toString(index)));
+		switch (c) {
+		case 0:
+			if (depth > 0)
+				throw new IOException("nextToken: Unexpected end");
+			return token = END_DOCUMENT;
+		case '{':
+		case '[':
+			if (levels == null) {
+				levels = new boolean[8];
+			} else if (depth == levels.length) {
+				System.arraycopy(levels, 0, levels = new boolean[depth * 2], 0, depth);
+			}
+			levels[depth++] = c == '{';
+			return token = c == '{' ? START_OBJECT : START_ARRAY;
+		case '}':
+		case ']':
+			if (depth == 0 || levels[depth - 1] != (c == '}'))
+				throw new JSONException("nextToken: unexpected '" + c + "' at " + index);
+			depth--;
+			return token = c == '}' ? END_OBJECT : END_ARRAY;
+		case '"':
+			readString();
+			if (object && token != KEY) {
+				if (nextTrim() != ':')
+					throw new JSONException("nextToken: malformed object at ".concat(Integer.toString(index)));
+				return token = KEY;
+			}
+			return token = STRING;
+		case 't':
+			skip(3);
+			return token = TRUE;
+		case 'f':
+			skip(4);
+			return token = FALSE;
+		case 'n':
+			skip(3);
+			return token = NULL;
+		default:
+			back();
+			bufLen = readValue();
+			return token = NUMBER;
+		}
+	}
+	
+	// Skips contents of current object or array, or value of current key
+	public void skipChildren() throws IOException {
+		switch (token) {
+		case START_OBJECT:
+			skipObject();
+			depth--;
+			token = END_OBJECT;
+			break;
+		case START_ARRAY:
+			skipArray();
+			depth--;
+			token = END_ARRAY;
+			break;
+		case KEY:
+			skipValue();
+			token = NULL;
+			break;
+		}
+	}
+	
+	public int getToken() {
+		return token;
+	}
+	
+	// Nesting level, root object contents are at 1
+	public int getDepth() {
+		return depth;
+	}
+	
+	// Returns internal buffer, valid until next token is read
+	public char[] getTokenChars() {
+		return buf;
+	}
+	
+	public int getTokenLength() {
+		return bufLen;
+	}
+	
+	public String getTokenString() {
+		return token == KEY ? JSONPool.key(buf, 0, bufLen) : JSONPool.value(buf, 0, bufLen);
+	}
+	
+	public boolean tokenEquals(String s) {
+		int len = bufLen;
+		if (s.length() != len)
+			return false;
+		char[] buf = this.buf;
+		for (int i = 0; i < len; i++) {
+			if (s.charAt(i) != buf[i]) return false;
+		}
+		return true;
+	}
+	
+	public int getTokenInt() {
+		return (int) getTokenLong();
+	}
+	
+	public long getTokenLong() {
+		long r = JSON.scanLong(buf, 0, bufLen);
+		if (r != JSON.NOT_LONG)
+			return r;
+		// fraction or exponent
+		return (long) getTokenDouble();
+	}
+	
+	public double getTokenDouble() {
+		try {
+			return Double.parseDouble(getTokenString());
+		} catch (Exception e) {
+			throw new JSONException("Cast to double failed: ".concat(getTokenString()));
+		}
+	}
+	
 	// Basic reader functions
 	
 	public char next() throws IOException {
@@ -313,7 +534,23 @@ public class JSONStream {
 			return prev;
 		}
 //		if (eof) return 0;
-		int r = reader.read();
+		int r;
+		if (in != null) {
+			if (low != -1) {
+				r = low;
+				low = -1;
+			} else {
+				if (pos == len && !fill()) {
+					eof = true;
+					return 0;
+				}
+				if ((r = bytes[pos++]) < 0) {
+					r = decode(r);
+				}
+			}
+		} else {
+			r = reader.read();
+		}
 		if (r <= 0) {
 			eof = true;
 			return 0;
@@ -332,6 +569,11 @@ public class JSONStream {
 		if (usePrev) {
 			usePrev = false;
 			n--;
+			index++;
+		}
+		if (in != null) {
+			while (n-- > 0) next();
+			return;
 		}
 		index += n;
 		reader.skip(n);
@@ -365,6 +607,12 @@ public class JSONStream {
 	public void reset() throws IOException {
 		index = prev = 0;
 		usePrev = false;
+		if (in != null) {
+			pos = len = 0;
+			low = -1;
+			in.reset();
+			return;
+		}
 		reader.reset();
 	}
 	
@@ -374,13 +622,54 @@ public class JSONStream {
 		} catch (IOException e) {}
 		index = prev = 0;
 		usePrev = false;
+		low = -1;
+		in = null;
+		reader = null;
+		token = -1;
+		depth = 0;
 		init(is);
 	}
 	
 	public void close() throws IOException {
+		if (in != null) {
+			bytes = null;
+			in.close();
+			return;
+		}
 		reader.close();
 	}
 	
+	// UTF-8 decoding
+	
+	private boolean fill() throws IOException {
+		int n = in.read(bytes, 0, bytes.length);
+		pos = 0;
+		if (n <= 0) {
+			len = 0;
+			return false;
+		}
+		len = n;
+		return true;
+	}
+	
+	private int nextByte() throws IOException {
+		if (pos == len && !fill())
+			throw new IOException("Unexpected end");
+		return bytes[pos++] & 0x3F;
+	}
+	
+	// decodes rest of sequence, characters outside of BMP are returned as surrogate pair
+	private int decode(int b) throws IOException {
+		b &= 0xFF;
+		if (b < 0xE0)
+			return ((b & 0x1F) << 6) | nextByte();
+		if (b < 0xF0)
+			return ((b & 0x0F) << 12) | (nextByte() << 6) | nextByte();
+		int c = (((b & 0x07) << 18) | (nextByte() << 12) | (nextByte() << 6) | nextByte()) - 0x10000;
+		low = 0xDC00 | (c & 0x3FF);
+		return 0xD800 | ((c >> 10) & 0x3FF);
+	}
+	
 	//
 	
 	private JSONObject nextObject(boolean check) throws IOException {
@@ -389,12 +678,16 @@ public class JSONStream {
 			throw new JSONException("nextObject: not object at ".concat(Integer.toString(index)));
 		}
 		JSONObject r = new JSONObject();
+		if (nextTrim() == '}')
+			return r;
+		back();
 		object: {
 		while (true) {
-			String key = nextString(true);
+			String key = nextKey();
 			if (nextTrim() != ':')
 				throw new JSONException("nextObject: malformed object at ".concat(Integer.toString(index)));
 			Object val = null;
+			long number = 0;
 			char c = nextTrim();
 			switch(c) {
 			case '}':
@@ -422,10 +715,19 @@ public class JSONStream {
 				break;
 			default:
 				back();
-				val = nextValue(true);
+				int n = readValue();
+				if ((number = JSON.scanLong(buf, 0, n)) != JSON.NOT_LONG) {
+					val = JSON.json_number;
+				} else {
+					val = valueOf(n, true);
+				}
 				break;
 			}
-			r.put(key, val);
+			if (val == JSON.json_number) {
+				r._put(key, number);
+			} else {
+				r.put(key, val);
+			}
 			c = nextTrim();
 			if (c == ',') {
 				continue;
@@ -448,6 +750,7 @@ public class JSONStream {
 		array: {
 		while (true) {
 			Object val = null;
+			long number = 0;
 			char c = nextTrim();
 			switch(c) {
 			case ']':
@@ -475,10 +778,19 @@ public class JSONStream {
 				break;
 			default:
 				back();
-				val = nextValue(true);
+				int n = readValue();
+				if ((number = JSON.scanLong(buf, 0, n)) != JSON.NOT_LONG) {
+					val = JSON.json_number;
+				} else {
+					val = valueOf(n, true);
+				}
 				break;
 			}
-			r.addElement(val);
+			if (val == JSON.json_number) {
+				r.addElement(number);
+			} else {
+				r.addElement(val);
+			}
 			c = nextTrim();
 			if (c == ',') {
 				continue;
@@ -497,40 +809,97 @@ public class JSONStream {
 			back();
 			throw new JSONException("nextString: not string at ".concat(Integer.toString(index)));
 		}
-		StringBuffer sb = new StringBuffer();
-		char l = 0;
+		int n = readString();
+		return JSONPool.value(buf, 0, n);
+	}
+	
+	private String nextKey() throws IOException {
+		if (nextTrim() != '"') {
+			back();
+			throw new JSONException("nextObject: malformed object at ".concat(Integer.toString(index)));
+		}
+		int n = readString();
+		return JSONPool.key(buf, 0, n);
+	}
+	
+	// reads string into buffer, opening quote must be already read
+	private int readString() throws IOException {
+		char[] buf = this.buf;
+		if (buf == null)
+			buf = this.buf = new char[64];
+		int n = 0;
 		while (true) {
-			char c = next();
-			if (c == '\\' && l != '\\') {
-				l = c;
-				continue;
+			if (in != null && !usePrev && low == -1) {
+				// copy ascii run in bulk
+				if (pos == len && !fill())
+					throw new IOException("Unexpected end");
+				byte[] bytes = this.bytes;
+				int start = pos;
+				int p = start;
+				int l = len;
+				int b;
+				while (p < l && (b = bytes[p]) >= ' ' && b != '"' && b != '\\') p++;
+				if (p > start) {
+					int run = p - start;
+					if (n + run > buf.length)
+						System.arraycopy(buf, 0, buf = this.buf = new char[Math.max(n * 2, n + run)], 0, n);
+					for (int i = start; i < p; i++) {
+						buf[n++] = (char) bytes[i];
+					}
+					pos = p;
+					index += run;
+					continue;
+				}
 			}
-			if (c == 'u' && l == '\\') {
-				char[] chars = new char[4];
-				chars[0] = next();
-				chars[1] = next();
-				chars[2] = next();
-				chars[3] = next();
-				sb.append(l = (char) Integer.parseInt(new String(chars), 16));
-				continue;
+			char c = next();
+			if (c == 0)
+				throw new IOException("Unexpected end");
+			if (c == '"')
+				break;
+			if (c == '\\') {
+				switch (c = next()) {
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'u':
+					int u = 0;
+					for (int i = 0; i < 4; i++) {
+						u = (u << 4) | Character.digit(next(), 16);
+					}
+					c = (char) u;
+					break;
+				}
 			}
-			if (c == 0 || (l != '\\' && c == '"')) break;
-			sb.append(c);
-			l = c;
+			if (n == buf.length)
+				System.arraycopy(buf, 0, buf = this.buf = new char[n * 2], 0, n);
+			buf[n++] = c;
 		}
-		if (eof)
-			throw new IOException("nextString: Unexpected end");
-		return sb.toString();
+		return bufLen = n;
 	}
 	
 	private void skipObject() throws IOException {
+		char c = nextTrim();
+		if (c == '}')
+			return;
 		while (true) {
-			if (nextTrim() != '"')
+			if (c != '"')
 				throw new JSONException("skipObject: malformed object at ".concat(Integer.toString(index)));
 			skipString();
 			if (nextTrim() != ':')
 				throw new JSONException("skipObject: malformed object at ".concat(Integer.toString(index)));
-			char c = nextTrim();
+			c = nextTrim();
 			switch(c) {
 			case '}':
 				return;
@@ -552,6 +921,7 @@ public class JSONStream {
 			}
 			c = nextTrim();
 			if (c == ',') {
+				c = nextTrim();
 				continue;
 			}
 			if (c == '}') return;
@@ -590,48 +960,76 @@ public class JSONStream {
 	}
 	
 	private void skipString() throws IOException {
-		char l = 0;
+		if (in != null && !usePrev && low == -1) {
+			// multibyte sequences can't contain quotes, so there is no need to decode
+			byte[] bytes = this.bytes;
+			while (true) {
+				if (pos == len && !fill()) {
+					eof = true;
+					return;
+				}
+				byte b = bytes[pos++];
+				index++;
+				if (b == '"')
+					return;
+				if (b == '\\') {
+					if (pos == len && !fill()) {
+						eof = true;
+						return;
+					}
+					pos++;
+					index++;
+				}
+			}
+		}
 		while (true) {
 			char c = next();
-			if (c == 0 || (l != '\\' && c == '"')) break;
-			l = c;
+			if (c == 0 || c == '"') break;
+			if (c == '\\') next();
 		}
 	}
 	
 	private Object nextValue(boolean convertToNumber) throws IOException {
-		StringBuffer sb = new StringBuffer();
-		while (true) {
-			char c = next();
-			if (c == 0) throw new JSONException("nextValue: Unexpected end");
-			if (c == ',' || c == ']' || c == '}' || c == ':' || c <= ' ') {
-				back();
-				break;
-			}
-			sb.append(c);
-		}
-		String str = sb.toString();
+		int n = readValue();
+		if (n == 0)
+			throw new JSONException("nextValue: Unexpected end");
 		if (convertToNumber) {
+			long l = JSON.scanLong(buf, 0, n);
+			if (l != JSON.NOT_LONG)
+				return JSON.box(l);
+		}
+		return valueOf(n, convertToNumber);
+	}
+	
+	// converts value read into buffer which is not plain integer
+	private Object valueOf(int n, boolean convertToNumber) {
+		String str = new String(buf, 0, n);
+		if (convertToNumber && n > 0) {
 			char first = str.charAt(0);
-			int length = str.length();
 			if ((first >= '0' && first <= '9') || first == '-') {
 				try {
-					// hex
-					if (length > 1 && first == '0' && str.charAt(1) == 'x') {
-						if (length > 9) // str.length() > 10
-							return new Long(Long.parseLong(str.substring(2), 16));
-						return new Integer(Integer.parseInt(str.substring(2), 16));
-					}
-					// decimal
-					if (str.indexOf('.') != -1 || str.indexOf('E') != -1 || "-0".equals(str))
-						return new Double(Double.parseDouble(str));
-					if (first == '-') length--;
-					if (length > 8) // (str.length() - (str.charAt(0) == '-' ? 1 : 0)) >= 10
-						return new Long(Long.parseLong(str));
-					return new Integer(Integer.parseInt(str));
+					return JSON.parseNumber(str);
 				} catch (Exception ignored) {}
 			}
 		}
 		return str;
 	}
+	
+	// reads unquoted value into buffer
+	private int readValue() throws IOException {
+		char[] buf = this.buf;
+		if (buf == null)
+			buf = this.buf = new char[64];
+		int len = 0;
+		char c;
+		while ((c = next()) != 0 && c != ',' && c != ']' && c != '}' && c != ':' && c > ' ') {
+			if (len == buf.length)
+				System.arraycopy(buf, 0, buf = this.buf = new char[len * 2], 0, len);
+			buf[len++] = c;
+		}
+		if (c != 0)
+			back();
+		return len;
+	}
 
 }
@@ -21,16 +21,25 @@ SOFTWARE.
 */
 package cc.nnproject.json;
 
+// unparsed object or array, span [start, end] of shared source text
 class JSONString {
 	
-	String str;
+	final JSONSource src;
+	final int start;
+	final int end;
 
-	JSONString(String s) {
-		this.str = s;
+	JSONString(JSONSource src, int start, int end) {
+		this.src = src;
+		this.start = start;
+		this.end = end;
+	}
+	
+	Object parse() throws JSONException {
+		return JSON.parseJSON(src, start, end);
 	}
 	
 	public String toString() {
-		return str;
+		return new String(src.chars, start, end - start + 1);
 	}
 
 }
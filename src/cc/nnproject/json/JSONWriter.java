@@ -0,0 +1,405 @@
+/*
+Copyright (c) 2024 Arman Jussupgaliyev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package cc.nnproject.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes JSON as UTF-8 bytes to stream or to reusable buffer<br>
+ * Usage:<p><code>JSONWriter w = new JSONWriter(out);<br>
+ * w.beginObject(); w.key("id"); w.value(1); w.endObject();<br>
+ * w.flush();</code></p>
+ */
+public final class JSONWriter {
+	
+	private OutputStream out;
+	
+	private byte[] buf;
+	private int pos;
+	
+	// true for object on each nesting level
+	private boolean[] levels = new boolean[8];
+	private int depth;
+	// comma is needed before next element
+	private boolean comma;
+	// key was written, value is expected
+	private boolean named;
+	
+	/**
+	 * Writer to stream, output is buffered until flush()
+	 */
+	public JSONWriter(OutputStream out) {
+		this.out = out;
+		buf = new byte[512];
+	}
+	
+	/**
+	 * Writer to growing buffer, see getBuffer() and size()
+	 */
+	public JSONWriter(int size) {
+		buf = new byte[size];
+	}
+	
+	public JSONWriter() {
+		this(256);
+	}
+	
+	// Incremental API
+	
+	public void beginObject() throws IOException {
+		begin(true);
+	}
+	
+	public void endObject() throws IOException {
+		end(true);
+	}
+	
+	public void beginArray() throws IOException {
+		begin(false);
+	}
+	
+	public void endArray() throws IOException {
+		end(false);
+	}
+	
+	public void key(String name) throws IOException {
+		if (depth == 0 || !levels[depth - 1])
+			throw new JSONException("key: not in object");
+		if (named)
+			throw new JSONException("key: no value for previous key");
+		if (comma) write(',');
+		writeString(name);
+		write(':');
+		named = true;
+	}
+	
+	public void value(String s) throws IOException {
+		separate();
+		if (s == null) {
+			writeAscii("null");
+		} else {
+			writeString(s);
+		}
+		comma = true;
+	}
+	
+	public void value(long l) throws IOException {
+		separate();
+		writeLong(l);
+		comma = true;
+	}
+	
+	public void value(double d) throws IOException {
+		separate();
+		writeAscii(String.valueOf(d));
+		comma = true;
+	}
+	
+	public void value(boolean b) throws IOException {
+		separate();
+		writeAscii(b ? "true" : "false");
+		comma = true;
+	}
+	
+	public void nullValue() throws IOException {
+		separate();
+		writeAscii("null");
+		comma = true;
+	}
+	
+	// Tree API
+	
+	public void value(AbstractJSON json) throws IOException {
+		separate();
+		writeValue(json);
+		comma = true;
+	}
+	
+	public void value(Object o) throws IOException {
+		separate();
+		writeValue(o);
+		comma = true;
+	}
+	
+	// Output
+	
+	public void flush() throws IOException {
+		if (out == null) return;
+		if (pos > 0) {
+			out.write(buf, 0, pos);
+			pos = 0;
+		}
+		out.flush();
+	}
+	
+	public void close() throws IOException {
+		flush();
+		if (out != null) out.close();
+	}
+	
+	// Returns internal buffer, valid until next write
+	public byte[] getBuffer() {
+		return buf;
+	}
+	
+	public int size() {
+		return pos;
+	}
+	
+	public byte[] toByteArray() {
+		byte[] r = new byte[pos];
+		System.arraycopy(buf, 0, r, 0, pos);
+		return r;
+	}
+	
+	// Clears output and nesting state to reuse buffer
+	public void reset() {
+		pos = 0;
+		depth = 0;
+		comma = named = false;
+	}
+	
+	public void reset(OutputStream out) {
+		reset();
+		this.out = out;
+	}
+	
+	// Internal
+	
+	private void begin(boolean object) throws IOException {
+		separate();
+		if (depth == levels.length)
+			System.arraycopy(levels, 0, levels = new boolean[depth * 2], 0, depth);
+		levels[depth++] = object;
+		write(object ? '{' : '[');
+		comma = false;
+	}
+	
+	private void end(boolean object) throws IOException {
+		if (depth == 0 || levels[depth - 1] != object)
+			throw new JSONException(object ? "endObject: not in object" : "endArray: not in array");
+		if (named)
+			throw new JSONException("endObject: no value for key");
+		depth--;
+		write(object ? '}' : ']');
+		comma = true;
+	}
+	
+	private void separate() throws IOException {
+		if (depth > 0 && levels[depth - 1]) {
+			if (!named)
+				throw new JSONException("value: no key");
+			named = false;
+			return;
+		}
+		if (comma) write(',');
+	}
+	
+	private void writeValue(Object v) throws IOException {
+		if (v == null || v == JSON.json_null) {
+			writeAscii("null");
+		} else if (v instanceof JSONObject) {
+			JSONObject o = (JSONObject) v;
+			write('{');
+			for (int i = 0; i < o.count; i++) {
+				if (i > 0) write(',');
+				writeString(o.names[i]);
+				write(':');
+				Object e = o.values[i];
+				if (e == JSON.json_number) {
+					writeLong(o.numbers[i]);
+				} else {
+					writeValue(e);
+				}
+			}
+			write('}');
+		} else if (v instanceof JSONArray) {
+			JSONArray a = (JSONArray) v;
+			write('[');
+			for (int i = 0; i < a.count; i++) {
+				if (i > 0) write(',');
+				Object e = a.elements[i];
+				if (e == JSON.json_number) {
+					writeLong(a.numbers[i]);
+				} else {
+					writeValue(e);
+				}
+			}
+			write(']');
+		} else if (v instanceof String) {
+			writeString((String) v);
+		} else if (v instanceof JSONString) {
+			// unparsed source text, already valid JSON
+			JSONString s = (JSONString) v;
+			char[] chars = s.src.chars;
+			for (int i = s.start; i <= s.end; i++) {
+				if (i < s.end && writePair(chars[i], chars[i + 1])) {
+					i++;
+				} else {
+					writeChar(chars[i]);
+				}
+			}
+		} else if (v instanceof Integer) {
+			writeLong(((Integer) v).intValue());
+		} else if (v instanceof Long) {
+			writeLong(((Long) v).longValue());
+		} else {
+			writeAscii(v.toString());
+		}
+	}
+	
+	private void writeString(String s) throws IOException {
+		write('"');
+		int len = s.length();
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+			case '\\':
+				write('\\');
+				write(c);
+				break;
+			case '\b':
+				write('\\');
+				write('b');
+				break;
+			case '\f':
+				write('\\');
+				write('f');
+				break;
+			case '\n':
+				write('\\');
+				write('n');
+				break;
+			case '\r':
+				write('\\');
+				write('r');
+				break;
+			case '\t':
+				write('\\');
+				write('t');
+				break;
+			default:
+				if (c < 32 || (c >= '\u007f' && c < '\u00a0')) {
+					writeEscape(c);
+				} else if (c >= '\ud800' && c <= '\udfff') {
+					if (i + 1 < len && writePair(c, s.charAt(i + 1))) {
+						i++;
+					} else {
+						writeEscape(c);
+					}
+				} else {
+					writeChar(c);
+				}
+			}
+		}
+		write('"');
+	}
+	
+	// writes surrogate pair as one 4 byte sequence, returns false if it's not a pair
+	private boolean writePair(char c, char d) throws IOException {
+		if (c < '\ud800' || c > '\udbff' || d < '\udc00' || d > '\udfff')
+			return false;
+		int cp = 0x10000 + ((c - 0xD800) << 10) + (d - 0xDC00);
+		ensure(4);
+		buf[pos++] = (byte) (0xF0 | (cp >> 18));
+		buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+		buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+		buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+		return true;
+	}
+	
+	private void writeEscape(char c) throws IOException {
+		ensure(6);
+		buf[pos++] = '\\';
+		buf[pos++] = 'u';
+		for (int shift = 12; shift >= 0; shift -= 4) {
+			int d = (c >> shift) & 0xF;
+			buf[pos++] = (byte) (d < 10 ? '0' + d : 'a' + d - 10);
+		}
+	}
+	
+	private void writeLong(long l) throws IOException {
+		if (l == Long.MIN_VALUE) {
+			writeAscii("-9223372036854775808");
+			return;
+		}
+		ensure(20);
+		if (l < 0) {
+			buf[pos++] = '-';
+			l = -l;
+		}
+		int start = pos;
+		do {
+			buf[pos++] = (byte) ('0' + (int) (l % 10));
+			l /= 10;
+		} while (l != 0);
+		// digits were written in reverse
+		for (int i = start, j = pos - 1; i < j; i++, j--) {
+			byte t = buf[i];
+			buf[i] = buf[j];
+			buf[j] = t;
+		}
+	}
+	
+	private void writeAscii(String s) throws IOException {
+		int len = s.length();
+		ensure(len);
+		for (int i = 0; i < len; i++) {
+			buf[pos++] = (byte) s.charAt(i);
+		}
+	}
+	
+	private void writeChar(char c) throws IOException {
+		ensure(3);
+		if (c < 0x80) {
+			buf[pos++] = (byte) c;
+		} else if (c < 0x800) {
+			buf[pos++] = (byte) (0xC0 | (c >> 6));
+			buf[pos++] = (byte) (0x80 | (c & 0x3F));
+		} else {
+			buf[pos++] = (byte) (0xE0 | (c >> 12));
+			buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buf[pos++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+	
+	private void write(char c) throws IOException {
+		if (pos == buf.length) ensure(1);
+		buf[pos++] = (byte) c;
+	}
+	
+	// makes room for n bytes, flushing to stream or growing buffer
+	private void ensure(int n) throws IOException {
+		if (pos + n <= buf.length) return;
+		if (out != null) {
+			out.write(buf, 0, pos);
+			pos = 0;
+			if (n <= buf.length) return;
+		}
+		int size = buf.length * 2;
+		while (size < pos + n) size *= 2;
+		System.arraycopy(buf, 0, buf = new byte[size], 0, pos);
+	}
+
+}